@@ -1,18 +1,35 @@
 package com.george.gist.config;
 
 import java.net.URI;
+import java.time.Duration;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtAsyncHttpClient;
+import software.amazon.awssdk.http.crt.AwsCrtHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Configuration;
 
+/**
+ * Builds the S3 clients. The synchronous client serves reads, listing and the index; the
+ * asynchronous one serves the write-behind uploads, so {@code spring.aws.http.max-concurrency}
+ * should be at least {@code gist.store.max-concurrent-writes}. Both publish their request metrics
+ * through {@link S3MetricPublisher}. Only needed by the {@code s3} gist store backend.
+ */
 @Configuration
+@ConditionalOnProperty(name = "gist.store.backend", havingValue = "s3", matchIfMissing = true)
 public class S3Config {
 
     @Value("${spring.aws.access-key}")
@@ -24,8 +41,27 @@ public class S3Config {
     @Value("${spring.aws.s3-endpoint}")
     private String awsS3Endpoint;
 
+    @Value("${spring.aws.http.sync-client:APACHE}")
+    private S3HttpClientType syncClient;
+    @Value("${spring.aws.http.async-client:NETTY}")
+    private S3HttpClientType asyncClient;
+    @Value("${spring.aws.http.max-connections:50}")
+    private int maxConnections;
+    @Value("${spring.aws.http.max-concurrency:64}")
+    private int maxConcurrency;
+    @Value("${spring.aws.http.connection-timeout:2s}")
+    private Duration connectionTimeout;
+    @Value("${spring.aws.http.connection-acquisition-timeout:10s}")
+    private Duration connectionAcquisitionTimeout;
+    @Value("${spring.aws.http.socket-timeout:30s}")
+    private Duration socketTimeout;
+    @Value("${spring.aws.http.connection-max-idle-time:60s}")
+    private Duration connectionMaxIdleTime;
+    @Value("${spring.aws.http.max-attempts:3}")
+    private int maxAttempts;
+
     @Bean
-    public S3Client s3Client() {
+    public S3Client s3Client(S3MetricPublisher metricPublisher) {
         var credentials = AwsBasicCredentials.create(awsAccessKey, awsSecretKey);
 
         return S3Client
@@ -35,7 +71,68 @@ public class S3Config {
             .credentialsProvider(StaticCredentialsProvider.create(credentials))
             .serviceConfiguration(S3Configuration.builder()
                 .pathStyleAccessEnabled(true)
-                .build())   
+                .build())
+            .httpClient(syncHttpClient())
+            .overrideConfiguration(overrideConfiguration(metricPublisher))
+            .build();
+    }
+
+    @Bean
+    public S3AsyncClient s3AsyncClient(S3MetricPublisher metricPublisher) {
+        var credentials = AwsBasicCredentials.create(awsAccessKey, awsSecretKey);
+
+        return S3AsyncClient
+            .builder()
+            .endpointOverride(URI.create(awsS3Endpoint))
+            .region(Region.of(awsRegion))
+            .credentialsProvider(StaticCredentialsProvider.create(credentials))
+            .forcePathStyle(true)
+            .httpClient(asyncHttpClient())
+            .overrideConfiguration(overrideConfiguration(metricPublisher))
+            .build();
+    }
+
+    private SdkHttpClient syncHttpClient() {
+        return switch (syncClient) {
+            case APACHE -> ApacheHttpClient.builder()
+                .maxConnections(maxConnections)
+                .connectionTimeout(connectionTimeout)
+                .connectionAcquisitionTimeout(connectionAcquisitionTimeout)
+                .socketTimeout(socketTimeout)
+                .connectionMaxIdleTime(connectionMaxIdleTime)
+                .build();
+            case CRT -> AwsCrtHttpClient.builder()
+                .maxConcurrency(maxConnections)
+                .connectionTimeout(connectionTimeout)
+                .connectionMaxIdleTime(connectionMaxIdleTime)
+                .build();
+            case NETTY -> throw new IllegalStateException("NETTY is not a synchronous HTTP client; use APACHE or CRT");
+        };
+    }
+
+    private SdkAsyncHttpClient asyncHttpClient() {
+        return switch (asyncClient) {
+            case NETTY -> NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(maxConcurrency)
+                .connectionTimeout(connectionTimeout)
+                .connectionAcquisitionTimeout(connectionAcquisitionTimeout)
+                .readTimeout(socketTimeout)
+                .writeTimeout(socketTimeout)
+                .connectionMaxIdleTime(connectionMaxIdleTime)
+                .build();
+            case CRT -> AwsCrtAsyncHttpClient.builder()
+                .maxConcurrency(maxConcurrency)
+                .connectionTimeout(connectionTimeout)
+                .connectionMaxIdleTime(connectionMaxIdleTime)
+                .build();
+            case APACHE -> throw new IllegalStateException("APACHE is not an asynchronous HTTP client; use NETTY or CRT");
+        };
+    }
+
+    private ClientOverrideConfiguration overrideConfiguration(S3MetricPublisher metricPublisher) {
+        return ClientOverrideConfiguration.builder()
+            .retryStrategy(retry -> retry.maxAttempts(maxAttempts))
+            .addMetricPublisher(metricPublisher)
             .build();
     }
 }
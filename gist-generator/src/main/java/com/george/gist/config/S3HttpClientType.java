@@ -0,0 +1,12 @@
+package com.george.gist.config;
+
+/**
+ * The HTTP client behind an S3 client: {@link #APACHE} for the synchronous client or {@link #NETTY}
+ * for the asynchronous one, which are the SDK defaults, or {@link #CRT}, the AWS Common Runtime
+ * client, for either.
+ */
+public enum S3HttpClientType {
+    APACHE,
+    NETTY,
+    CRT
+}
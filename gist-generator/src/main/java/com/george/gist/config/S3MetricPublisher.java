@@ -0,0 +1,93 @@
+package com.george.gist.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+
+/**
+ * Publishes the metrics the AWS SDK collects for every S3 call to Micrometer, for the actuator
+ * {@code metrics} endpoint:
+ * <ul>
+ * <li>{@code s3.requests}: a timer per operation ({@code PutObject}, {@code GetObject},
+ * {@code ListObjectsV2}, {@code HeadBucket}, ...) and outcome, including retries, with p50, p95
+ * and p99;</li>
+ * <li>{@code s3.retries}: retried attempts per operation;</li>
+ * <li>{@code s3.connections.acquire}: time waiting for a pooled connection, per HTTP client;</li>
+ * <li>{@code s3.connections.leased} and {@code s3.connections.pending}: connections in use and
+ * requests waiting for one, sampled at each attempt.</li>
+ * </ul>
+ * A high acquire p99 or a pending count above zero means {@code spring.aws.http.max-connections}
+ * or {@code max-concurrency} is too small for the load.
+ */
+@Component
+public class S3MetricPublisher implements MetricPublisher {
+
+    private final MeterRegistry meterRegistry;
+
+    public S3MetricPublisher(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void publish(MetricCollection metrics) {
+        var operation = first(metrics.metricValues(CoreMetric.OPERATION_NAME), "unknown");
+        var successful = first(metrics.metricValues(CoreMetric.API_CALL_SUCCESSFUL), false);
+
+        for (var duration : metrics.metricValues(CoreMetric.API_CALL_DURATION)) {
+            Timer.builder("s3.requests")
+                    .tag("operation", operation)
+                    .tag("outcome", successful ? "success" : "failure")
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry)
+                    .record(duration);
+        }
+        for (var retries : metrics.metricValues(CoreMetric.RETRY_COUNT)) {
+            Counter.builder("s3.retries").tag("operation", operation).register(meterRegistry).increment(retries);
+        }
+
+        descendants(metrics).forEach(http -> {
+            var client = first(http.metricValues(HttpMetric.HTTP_CLIENT_NAME), null);
+            if (client == null) {
+                return;
+            }
+            for (Duration acquire : http.metricValues(HttpMetric.CONCURRENCY_ACQUIRE_DURATION)) {
+                Timer.builder("s3.connections.acquire")
+                        .tag("client", client)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry)
+                        .record(acquire);
+            }
+            for (int leased : http.metricValues(HttpMetric.LEASED_CONCURRENCY)) {
+                DistributionSummary.builder("s3.connections.leased").tag("client", client)
+                        .register(meterRegistry).record(leased);
+            }
+            for (int pending : http.metricValues(HttpMetric.PENDING_CONCURRENCY_ACQUIRES)) {
+                DistributionSummary.builder("s3.connections.pending").tag("client", client)
+                        .register(meterRegistry).record(pending);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static Stream<MetricCollection> descendants(MetricCollection metrics) {
+        return metrics.children().stream().flatMap(child -> Stream.concat(Stream.of(child), descendants(child)));
+    }
+
+    private static <T> T first(List<T> values, T otherwise) {
+        return values.isEmpty() ? otherwise : values.getFirst();
+    }
+}
@@ -1,5 +1,6 @@
 package com.george.gist.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -11,13 +12,13 @@ import org.thymeleaf.templatemode.TemplateMode;
 public class ThymeleafConfig {
     @Bean
     @Primary
-    public SpringResourceTemplateResolver templateResolver() {
+    public SpringResourceTemplateResolver templateResolver(@Value("${spring.thymeleaf.cache:true}") boolean cacheable) {
         var tr = new SpringResourceTemplateResolver();
         tr.setPrefix("classpath:/templates/");
         tr.setSuffix(".html");
         tr.setTemplateMode(TemplateMode.HTML);
         tr.setCharacterEncoding("UTF-8");
-        tr.setCacheable(false);
+        tr.setCacheable(cacheable);
         return tr;
     }
 
@@ -1,73 +1,152 @@
 package com.george.gist.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.thymeleaf.context.Context;
-import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import com.george.gist.model.CreateGistRequest;
 import com.george.gist.model.Gist;
-import com.george.gist.service.MarkdownService;
-import com.george.gist.store.S3GistStore;
+import com.george.gist.model.GistPage;
+import com.george.gist.service.GistPageRenderer;
+import com.george.gist.service.RenderedHtmlCache;
+import com.george.gist.store.GistStore;
 
 import de.huxhorn.sulky.ulid.ULID;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController("/")
 public class GistController {
     private static final ULID ULID = new ULID();
+    private static final int MAX_PAGE_SIZE = 100;
 
-    private final S3GistStore s3GistStore;
-    private final MarkdownService markdownService;
-    private final SpringTemplateEngine templateEngine;
+    private final GistStore gistStore;
+    private final RenderedHtmlCache renderedHtml;
+    private final GistPageRenderer pageRenderer;
 
-    public GistController(S3GistStore s3GistStore, MarkdownService markdownService, SpringTemplateEngine templateEngine) {
-        this.s3GistStore = s3GistStore;
-        this.markdownService = markdownService;
-        this.templateEngine = templateEngine;
+    private final String pageCacheControl;
+    private final int maxBatchSize;
+
+    public GistController(GistStore gistStore, RenderedHtmlCache renderedHtml, GistPageRenderer pageRenderer,
+                          @Value("${gist.page.max-age:1d}") Duration pageMaxAge,
+                          @Value("${gist.batch.max-size:100}") int maxBatchSize) {
+        this.gistStore = gistStore;
+        this.renderedHtml = renderedHtml;
+        this.pageRenderer = pageRenderer;
+        this.pageCacheControl = CacheControl.maxAge(pageMaxAge).cachePublic().getHeaderValue();
+        this.maxBatchSize = maxBatchSize;
     }
 
     @PostMapping(value = "/gists", consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> create(@RequestBody CreateGistRequest request) {
+        requireMarkdown(request);
+
+        var gist = newGist(request, renderedHtml.toSafeHtml(request.markdown()));
+
+        gistStore.save(gist);
+        return ResponseEntity.ok(gist);
+    }
+
+    /**
+     * Creates a gist from a raw markdown body of any size, streamed through to storage. Returns the
+     * gist's summary, since its markdown and HTML may be too large to send back.
+     */
+    @PostMapping(value = "/gists", consumes = { "text/markdown", MediaType.TEXT_PLAIN_VALUE })
+    public ResponseEntity<?> createStream(@RequestParam("title") String title,
+                                          @RequestParam(name = "language", required = false) String language,
+                                          InputStream markdown) {
+        return ResponseEntity.ok(gistStore.saveStream(newId(), title, language, Instant.now(), markdown));
+    }
+
+    @PostMapping(value = "/gists/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> createBatch(@RequestBody List<CreateGistRequest> requests) {
+        if (requests == null || requests.isEmpty() || requests.size() > maxBatchSize) {
+            throw new RuntimeException("Between 1 and " + maxBatchSize + " gists required");
+        }
+        requests.forEach(GistController::requireMarkdown);
+
+        var html = renderedHtml.toSafeHtml(requests.stream().map(CreateGistRequest::markdown).toList());
+        var gists = new ArrayList<Gist>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            var gist = newGist(requests.get(i), html.get(i));
+            gistStore.save(gist);
+            gists.add(gist);
+        }
+        return ResponseEntity.ok(gists);
+    }
+
+    private static void requireMarkdown(CreateGistRequest request) {
         if (request == null || request.markdown() == null || request.markdown().isBlank()) {
             throw new RuntimeException("Markdown required");
         }
+    }
 
-        var gist = new Gist(
-            ULID.nextULID().toLowerCase(), 
+    private static Gist newGist(CreateGistRequest request, String html) {
+        return new Gist(
+            newId(), 
             request.title(), 
             request.language(), 
             request.markdown(), 
-            markdownService.toSafeHtml(request.markdown()),
+            html,
             Instant.now());
-
-        s3GistStore.save(gist);
-        return ResponseEntity.ok(gist);
     }
     
+    private static String newId() {
+        return ULID.nextULID().toLowerCase();
+    }
+
+    @GetMapping("/gists")
+    public GistPage list(@RequestParam(name = "cursor", required = false) String cursor,
+                         @RequestParam(name = "limit", defaultValue = "20") int limit) {
+        return gistStore.list(cursor, Math.clamp(limit, 1, MAX_PAGE_SIZE));
+    }
+
     @GetMapping("/gists/{id}.json")
     public Gist get(@PathVariable("id") String id) {
-        var gist = s3GistStore.find(id);
+        var gist = gistStore.find(id);
         if (gist == null)
             throw new RuntimeException();
         return gist;
     }
 
     @GetMapping(value = "/g/{id}", produces = MediaType.TEXT_HTML_VALUE)
-    public String page(@PathVariable("id") String id) {
-        var gist = s3GistStore.find(id);
-        if (gist == null)
+    public void page(@PathVariable("id") String id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        var page = pageRenderer.cached(id);
+        var gist = page == null ? gistStore.find(id) : null;
+        if (page == null && gist == null)
             throw new RuntimeException();
 
-        var context = new Context(Locale.getDefault());
-        context.setVariable("gist", gist);
-        return templateEngine.process("gist-template", context);
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                pageRenderer.cacheable() ? pageCacheControl : CacheControl.noCache().getHeaderValue());
+        // Gists are immutable, so the ETag alone decides whether the client's copy is current.
+        var etag = pageRenderer.etag(id);
+        if (etag != null && new ServletWebRequest(request, response).checkNotModified(etag))
+            return;
+
+        response.setContentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8).toString());
+        if (page != null) {
+            response.setContentLength(page.length);
+            response.getOutputStream().write(page);
+        } else {
+            pageRenderer.write(gist, response.getOutputStream());
+        }
     }
 }
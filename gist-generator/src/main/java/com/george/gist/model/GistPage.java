@@ -0,0 +1,9 @@
+package com.george.gist.model;
+
+import java.util.List;
+
+public record GistPage(
+        List<GistSummary> items,
+        String nextCursor
+) {
+}
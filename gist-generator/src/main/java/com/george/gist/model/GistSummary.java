@@ -0,0 +1,13 @@
+package com.george.gist.model;
+
+import java.time.Instant;
+
+public record GistSummary(
+        String id,
+        String title,
+        Instant createdAt
+) {
+    public static GistSummary of(Gist gist) {
+        return new GistSummary(gist.id(), gist.title(), gist.createdAt());
+    }
+}
@@ -0,0 +1,166 @@
+package com.george.gist.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import com.george.gist.model.Gist;
+import com.george.gist.store.GistCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Renders the {@code gist-template} page for a gist. Pages are written straight to the response
+ * stream as the template is processed; pages up to {@code gist.cache.pages.max-entry-bytes} are
+ * also kept as UTF-8 bytes so a popular gist is served without a store lookup or template
+ * evaluation. Published as the {@code cache.*} meters tagged {@code cache=gist-pages}.
+ *
+ * <p>Gists never change, so a page only changes when the template does, or goes away when its
+ * gist is invalidated in {@link GistCache} because it could not be stored. {@link #etag(String)}
+ * combines the gist id with a checksum of the template.
+ */
+@Service
+public class GistPageRenderer {
+
+    private static final String TEMPLATE = "gist-template";
+
+    private final SpringTemplateEngine templateEngine;
+    private final Cache<String, byte[]> pages;
+    private final long maxEntryBytes;
+    private final String templateVersion;
+    private final boolean cacheable;
+
+    public GistPageRenderer(SpringTemplateEngine templateEngine, MeterRegistry meterRegistry, GistCache gistCache,
+                            @Value("${gist.cache.pages.max-bytes:67108864}") long maxBytes,
+                            @Value("${gist.cache.pages.max-entry-bytes:1048576}") long maxEntryBytes,
+                            @Value("${spring.thymeleaf.cache:true}") boolean templateCache) {
+        this.templateEngine = templateEngine;
+        this.cacheable = templateCache;
+        this.maxEntryBytes = maxEntryBytes;
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String id, byte[] page) -> page.length)
+                .recordStats()
+                .build();
+        this.templateVersion = checksum(new ClassPathResource("templates/" + TEMPLATE + ".html"));
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "gist-pages");
+        gistCache.onInvalidate(pages::invalidate);
+    }
+
+    /**
+     * Whether pages stay the same until the application restarts. With template caching off
+     * ({@code spring.thymeleaf.cache=false}) the template may be edited at any time, so pages are
+     * neither cached nor given an ETag.
+     */
+    public boolean cacheable() {
+        return cacheable;
+    }
+
+    /**
+     * Returns the ETag for the page of the gist with the given id, or {@code null} when pages are
+     * not {@link #cacheable()}.
+     */
+    public String etag(String id) {
+        return cacheable ? "\"" + id + "-" + templateVersion + "\"" : null;
+    }
+
+    /**
+     * Returns the cached page for the gist with the given id, or {@code null} if it has not been rendered.
+     */
+    public byte[] cached(String id) {
+        return cacheable ? pages.getIfPresent(id) : null;
+    }
+
+    /**
+     * Renders the page for {@code gist} into {@code out}, caching it when it is small enough.
+     */
+    public void write(Gist gist, OutputStream out) throws IOException {
+        var capture = new CapturingOutputStream(out, maxEntryBytes);
+        var writer = new OutputStreamWriter(capture, StandardCharsets.UTF_8);
+        templateEngine.process(TEMPLATE, context(gist), writer);
+        writer.flush();
+        var page = capture.captured();
+        if (page != null && cacheable) {
+            pages.put(gist.id(), page);
+        }
+    }
+
+    private static Context context(Gist gist) {
+        var context = new Context(Locale.getDefault());
+        context.setVariable("gist", gist);
+        return context;
+    }
+
+    private static String checksum(ClassPathResource template) {
+        try (var in = template.getInputStream()) {
+            var crc = new CRC32();
+            crc.update(in.readAllBytes());
+            return HexFormat.of().toHexDigits((int) crc.getValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + template.getPath(), e);
+        }
+    }
+
+    /**
+     * Passes bytes through to the response and keeps a copy until it grows past the limit.
+     */
+    private static final class CapturingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final long limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        CapturingOutputStream(OutputStream out, long limit) {
+            this.out = out;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (copy != null) {
+                copy.write(b);
+                trim();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                trim();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        byte[] captured() {
+            return copy == null ? null : copy.toByteArray();
+        }
+
+        private void trim() {
+            if (copy.size() > limit) {
+                copy = null;
+            }
+        }
+    }
+}
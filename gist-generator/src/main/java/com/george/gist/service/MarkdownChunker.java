@@ -0,0 +1,121 @@
+package com.george.gist.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits markdown read from a {@link Reader} into chunks of whole top-level blocks, so each chunk can
+ * be rendered on its own. Once a chunk holds {@code targetChars}, it ends before the next unindented
+ * line that follows a blank line outside a fenced code block and does not continue a list or block
+ * quote. Content with no such break, like one very long code block, is split anywhere once the chunk
+ * reaches four times the target; a fenced block split that way is closed and reopened, so both halves
+ * still render as code. Link reference definitions only resolve within their own chunk.
+ */
+final class MarkdownChunker {
+
+    private static final int HARD_LIMIT_FACTOR = 4;
+    private static final Pattern FENCE = Pattern.compile("^ {0,3}(`{3,}|~{3,})");
+    private static final Pattern CONTINUATION = Pattern.compile("^(?:[-+*]|\\d{1,9}[.)])(?:\\s|$)|^>");
+
+    private final BufferedReader in;
+    private final int targetChars;
+    private final StringBuilder piece;
+
+    /** A line read past the end of the previous chunk. */
+    private String pending;
+    /** The opening line of a fenced block split across chunks, to start the next chunk with. */
+    private String reopen;
+    private String fence;
+    private String fenceMarker;
+    private boolean afterBlank;
+    private boolean lineStart;
+    private boolean lineEnded = true;
+
+    MarkdownChunker(Reader in, int targetChars) {
+        this.in = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in);
+        this.targetChars = targetChars;
+        this.piece = new StringBuilder(Math.min(targetChars, 256));
+    }
+
+    /**
+     * Returns the next chunk, or {@code null} when the markdown is exhausted.
+     */
+    String next() throws IOException {
+        var chunk = new StringBuilder();
+        if (reopen != null) {
+            chunk.append(reopen);
+            reopen = null;
+        }
+        while (true) {
+            var line = pending != null ? pending : readLine();
+            pending = null;
+            if (line == null) {
+                return chunk.isEmpty() ? null : chunk.toString();
+            }
+            if (chunk.length() >= targetChars) {
+                if (lineStart && fence == null && afterBlank && !Character.isWhitespace(line.charAt(0))
+                        && !CONTINUATION.matcher(line).find()) {
+                    pending = line;
+                    return chunk.toString();
+                }
+                if (chunk.length() >= HARD_LIMIT_FACTOR * targetChars) {
+                    pending = line;
+                    if (fence != null) {
+                        if (!lineStart) {
+                            chunk.append('\n');
+                        }
+                        chunk.append(fenceMarker).append('\n');
+                        reopen = fence;
+                    }
+                    return chunk.toString();
+                }
+            }
+            chunk.append(line);
+            if (lineStart) {
+                track(line);
+            }
+        }
+    }
+
+    private void track(String line) {
+        if (fence == null) {
+            Matcher opening = FENCE.matcher(line);
+            if (opening.find()) {
+                fence = line.endsWith("\n") ? line : line + "\n";
+                fenceMarker = opening.group(1);
+            }
+            afterBlank = line.isBlank();
+        } else {
+            var stripped = line.strip();
+            if (stripped.length() >= fenceMarker.length()
+                    && stripped.chars().allMatch(c -> c == fenceMarker.charAt(0))) {
+                fence = null;
+            }
+            afterBlank = false;
+        }
+    }
+
+    /**
+     * Reads a line including its terminator, or at most about {@code targetChars} of it.
+     */
+    private String readLine() throws IOException {
+        lineStart = lineEnded;
+        piece.setLength(0);
+        int c;
+        while ((piece.length() < targetChars || Character.isHighSurrogate(piece.charAt(piece.length() - 1)))
+                && (c = in.read()) != -1) {
+            piece.append((char) c);
+            if (c == '\n') {
+                break;
+            }
+        }
+        if (piece.isEmpty()) {
+            return null;
+        }
+        lineEnded = piece.charAt(piece.length() - 1) == '\n';
+        return piece.toString();
+    }
+}
@@ -2,36 +2,146 @@ package com.george.gist.service;
 
 import com.vladsch.flexmark.ext.emoji.EmojiExtension;
 import com.vladsch.flexmark.html.HtmlRenderer;
+import com.vladsch.flexmark.html.HtmlWriter;
+import com.vladsch.flexmark.html.renderer.NodeRendererContext;
+import com.vladsch.flexmark.html.renderer.NodeRenderingHandler;
 import com.vladsch.flexmark.parser.Parser;
+import com.vladsch.flexmark.util.ast.Document;
+import com.vladsch.flexmark.util.ast.Node;
+import com.vladsch.flexmark.util.data.DataKey;
+import com.vladsch.flexmark.util.data.MutableDataSet;
+import jakarta.annotation.PreDestroy;
+import org.owasp.html.Handler;
 import org.owasp.html.HtmlPolicyBuilder;
+import org.owasp.html.HtmlSanitizer;
+import org.owasp.html.HtmlStreamRenderer;
 import org.owasp.html.PolicyFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
+/**
+ * Renders markdown to sanitized HTML. The document is rendered and sanitized one top-level block at
+ * a time straight into the output, so the unsanitized HTML of the whole document is never built.
+ * Batches are rendered in parallel on a pool of {@code gist.render.parallelism} threads (0 means
+ * one per core), shared by all batch requests. Markdown read from a stream is rendered
+ * {@code gist.render.chunk-chars} at a time, split by {@link MarkdownChunker}.
+ */
 @Service
 public class MarkdownService {
 
+    private static final DataKey<Appendable> SANITIZED_OUTPUT = new DataKey<>("SANITIZED_OUTPUT", (Appendable) null);
+
+    private static final Handler<IOException> RETHROW = e -> {
+        throw new UncheckedIOException(e);
+    };
+
     private final Parser parser;
     private final HtmlRenderer renderer;
+    private final HtmlRenderer blockRenderer;
     private final PolicyFactory policy;
+    private final ForkJoinPool batchPool;
+    private final int maxBlankLines;
+    private final int chunkChars;
 
-    public MarkdownService() {
-        var opts = new com.vladsch.flexmark.util.data.MutableDataSet();
+    public MarkdownService(@Value("${gist.render.parallelism:0}") int parallelism,
+                           @Value("${gist.render.chunk-chars:65536}") int chunkChars) {
+        this.chunkChars = chunkChars;
+        var opts = new MutableDataSet();
         opts.set(Parser.EXTENSIONS, List.of(EmojiExtension.create()));
         parser = Parser.builder(opts).build();
+        maxBlankLines = HtmlRenderer.MAX_BLANK_LINES.get(opts);
         renderer = HtmlRenderer.builder(opts).escapeHtml(false).build();
+        blockRenderer = HtmlRenderer.builder(opts)
+                .escapeHtml(false)
+                .nodeRendererFactory(options -> () -> Set.of(new NodeRenderingHandler<>(Document.class, this::renderBlocks)))
+                .build();
         policy = new HtmlPolicyBuilder()
                 .allowElements("a", "p", "pre", "code", "em", "strong", "ul", "ol", "li", "blockquote", "h1", "h2",
                         "h3", "hr", "br", "span")
                 .allowAttributes("href").onElements("a")
                 .allowUrlProtocols("http", "https")
                 .toFactory();
+        batchPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
     }
 
+    @PreDestroy
+    public void stop() {
+        batchPool.shutdownNow();
+    }
 
     public String toSafeHtml(String markdown) {
-        var doc = parser.parse(markdown == null ? "" : markdown);
-        return policy.sanitize(renderer.render(doc));
+        var html = new StringBuilder(markdown == null ? 0 : markdown.length() + markdown.length() / 4);
+        writeSafeHtml(markdown, html);
+        return html.toString();
+    }
+
+    /**
+     * Renders each markdown document of {@code markdowns} in parallel, returning the HTML in the same order.
+     */
+    public List<String> toSafeHtml(List<String> markdowns) {
+        try {
+            return batchPool.submit(() -> markdowns.parallelStream().map(this::toSafeHtml).toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while rendering markdown", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Renders {@code markdown} as sanitized HTML into {@code out}.
+     */
+    public void writeSafeHtml(String markdown, Appendable out) {
+        var document = parse(markdown);
+        document.set(SANITIZED_OUTPUT, out);
+        // Everything reaches out through the sanitizer; whatever the renderer itself emits is discarded.
+        blockRenderer.render(document, new StringBuilder(0));
+    }
+
+    /**
+     * Renders markdown read from {@code markdown} as sanitized HTML into {@code out} a chunk at a time,
+     * so the document is never held in memory whole.
+     */
+    public void writeSafeHtml(Reader markdown, Appendable out) throws IOException {
+        var chunks = new MarkdownChunker(markdown, chunkChars);
+        for (var chunk = chunks.next(); chunk != null; chunk = chunks.next()) {
+            writeSafeHtml(chunk, out);
+        }
+    }
+
+    /**
+     * Renders the document one top-level block at a time, passing each block through the sanitizer
+     * into the output stored on the document and dropping it from the writer.
+     */
+    private void renderBlocks(Document document, NodeRendererContext context, HtmlWriter html) {
+        var out = SANITIZED_OUTPUT.get(document);
+        for (var node : document.getChildren()) {
+            context.render(node);
+            html.line();
+            var block = html.toString(maxBlankLines, maxBlankLines);
+            html.removeLines(0, html.getLineCount());
+            HtmlSanitizer.sanitize(block, policy.apply(HtmlStreamRenderer.create(out, RETHROW, Handler.DO_NOTHING)));
+        }
+    }
+
+    Document parse(String markdown) {
+        return parser.parse(markdown == null ? "" : markdown);
+    }
+
+    String render(Node document) {
+        return renderer.render(document);
+    }
+
+    String sanitize(String html) {
+        return policy.sanitize(html);
     }
 }
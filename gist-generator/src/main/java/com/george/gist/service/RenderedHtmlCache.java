@@ -0,0 +1,88 @@
+package com.george.gist.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.george.gist.store.ContentHash;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Sanitized HTML keyed by the {@link ContentHash} of its markdown, so markdown that is posted
+ * again is not rendered again. Published as the {@code cache.*} meters tagged
+ * {@code cache=rendered-html}.
+ */
+@Component
+public class RenderedHtmlCache {
+
+    private final MarkdownService markdownService;
+    private final Cache<String, String> rendered;
+
+    public RenderedHtmlCache(MarkdownService markdownService, MeterRegistry meterRegistry,
+                             @Value("${gist.cache.rendered.max-bytes:33554432}") long maxBytes) {
+        this.markdownService = markdownService;
+        this.rendered = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String hash, String html) -> 2 * html.length())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, rendered, "rendered-html");
+    }
+
+    public String toSafeHtml(String markdown) {
+        return toSafeHtml(ContentHash.of(markdown), markdown);
+    }
+
+    public String toSafeHtml(String contentHash, String markdown) {
+        return rendered.get(contentHash, hash -> markdownService.toSafeHtml(markdown));
+    }
+
+    /**
+     * Renders markdown read from {@code markdown} straight into {@code out}. Streamed markdown is
+     * too large to keep, so it is neither looked up nor cached.
+     */
+    public void writeSafeHtml(Reader markdown, Appendable out) throws IOException {
+        markdownService.writeSafeHtml(markdown, out);
+    }
+
+    /**
+     * Returns the HTML for each of {@code markdowns} in order, rendering the ones not cached as one
+     * parallel batch.
+     */
+    public List<String> toSafeHtml(List<String> markdowns) {
+        var hashes = markdowns.stream().map(ContentHash::of).toList();
+        var html = new ArrayList<String>(markdowns.size());
+        var missing = new HashMap<String, String>();
+        for (int i = 0; i < markdowns.size(); i++) {
+            var cached = rendered.getIfPresent(hashes.get(i));
+            html.add(cached);
+            if (cached == null) {
+                missing.putIfAbsent(hashes.get(i), markdowns.get(i));
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            var missingHashes = List.copyOf(missing.keySet());
+            var renderedHtml = markdownService.toSafeHtml(missingHashes.stream().map(missing::get).toList());
+            for (int i = 0; i < missingHashes.size(); i++) {
+                missing.put(missingHashes.get(i), renderedHtml.get(i));
+                rendered.put(missingHashes.get(i), renderedHtml.get(i));
+            }
+            for (int i = 0; i < html.size(); i++) {
+                if (html.get(i) == null) {
+                    html.set(i, missing.get(hashes.get(i)));
+                }
+            }
+        }
+        return html;
+    }
+}
@@ -0,0 +1,37 @@
+package com.george.gist.store;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 of gist markdown, hex encoded. Gists with the same markdown share one content blob,
+ * stored under {@code blobs/<hash>}.
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    public static String of(String markdown) {
+        var digest = newDigest();
+        digest.update(markdown.getBytes(StandardCharsets.UTF_8));
+        return hex(digest);
+    }
+
+    /**
+     * Returns a digest to hash markdown with as its UTF-8 bytes stream past, for {@link #hex}.
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
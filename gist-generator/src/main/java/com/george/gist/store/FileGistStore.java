@@ -0,0 +1,345 @@
+package com.george.gist.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.george.gist.model.Gist;
+import com.george.gist.model.GistPage;
+import com.george.gist.model.GistSummary;
+import com.george.gist.service.RenderedHtmlCache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Stores gists in append-only, memory-mapped segment files under {@code gist.store.file.directory}
+ * ({@code gist.store.backend=file}), for single-node deployments without S3. An in-memory map from
+ * id to record offset, rebuilt by scanning the segments at startup, makes every read a single
+ * lookup into mapped memory.
+ *
+ * <p>Each segment is a file of {@code gist.store.file.segment-bytes} holding records back to back:
+ * <pre>
+ * int    length of the rest of the record, negative while it is being written, 0 past the last
+ * string id, long createdAt seconds, int nanos, string title, string language
+ * bytes  {@link GistContent} encoded by {@link GistCodec}
+ * </pre>
+ * where a string is its UTF-8 length, -1 for {@code null}, then its bytes. Space for a record is
+ * reserved under a lock and the record written outside it, so writers only contend on the
+ * reservation. The length is made positive last, so a record cut short when the process dies is
+ * skipped at startup. Writes reach the disk when the OS writes back the mapped pages, or on each
+ * save with {@code gist.store.file.force-writes}.
+ */
+@Component
+@ConditionalOnProperty(name = "gist.store.backend", havingValue = "file")
+public class FileGistStore implements GistStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileGistStore.class);
+
+    private static final String SEGMENT_PREFIX = "gists-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final GistCodec codec;
+    private final RenderedHtmlCache renderedHtml;
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean forceWrites;
+
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> offsets = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, GistSummary> summaries = new ConcurrentSkipListMap<>();
+    private int appendPosition;
+
+    public FileGistStore(GistCodec codec, RenderedHtmlCache renderedHtml,
+                         @Value("${gist.store.file.directory:data/gists}") Path directory,
+                         @Value("${gist.store.file.segment-bytes:268435456}") int segmentBytes,
+                         @Value("${gist.store.file.force-writes:false}") boolean forceWrites) {
+        this.codec = codec;
+        this.renderedHtml = renderedHtml;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.forceWrites = forceWrites;
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        Files.createDirectories(directory);
+        try (var files = Files.list(directory)) {
+            for (var file : files.filter(FileGistStore::isSegment).sorted().toList()) {
+                segments.add(map(file, Files.size(file)));
+                appendPosition = scan(segments.size() - 1);
+            }
+        }
+        if (segments.isEmpty()) {
+            addSegment(segmentBytes);
+        }
+        log.info("Opened {} gists in {} segments under {}", offsets.size(), segments.size(), directory);
+    }
+
+    @PreDestroy
+    void close() {
+        segments.forEach(MappedByteBuffer::force);
+    }
+
+    @Override
+    public void save(Gist gist) {
+        try {
+            var payload = codec.encode(new GistContent(gist.markdown(), gist.html()));
+            append(gist.id(), gist.title(), gist.language(), gist.createdAt(), payload.length,
+                    (segment, position) -> segment.put(position, payload));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save gist", e);
+        }
+    }
+
+    /**
+     * Saves a gist whose markdown is read from {@code markdown} as it arrives. A record's length
+     * is needed before it can be placed, so the markdown and HTML are spooled and encoded to a
+     * temporary file, which is then copied into the segment.
+     */
+    @Override
+    public GistSummary saveStream(String id, String title, String language, Instant createdAt,
+                                  InputStream markdown) {
+        Path encoded = null;
+        try (var spooled = SpooledMarkdown.spool(markdown, renderedHtml)) {
+            encoded = Files.createTempFile("gist-", ".enc");
+            try (var md = spooled.markdown(); var html = spooled.html(); var out = Files.newOutputStream(encoded)) {
+                codec.encodeContent(md, html, out);
+            }
+            var source = encoded;
+            long size = Files.size(source);
+            if (size > Integer.MAX_VALUE - 1024) {
+                throw new RuntimeException("Gist too large: " + size + " bytes");
+            }
+            append(id, title, language, createdAt, (int) size, (segment, position) -> {
+                try (var channel = FileChannel.open(source)) {
+                    var target = segment.slice(position, (int) size);
+                    while (target.hasRemaining() && channel.read(target) >= 0) {
+                        // read until the slice is full
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return new GistSummary(id, title, createdAt);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to save gist", e);
+        } finally {
+            if (encoded != null) {
+                try {
+                    Files.deleteIfExists(encoded);
+                } catch (IOException e) {
+                    log.warn("Could not delete {}: {}", encoded, e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public Gist find(String id) {
+        var offset = offsets.get(id);
+        if (offset == null) {
+            return null;
+        }
+        var segment = segments.get(segmentOf(offset));
+        int position = positionOf(offset);
+        var record = segment.slice(position + Integer.BYTES, segment.getInt(position));
+        var recordId = readString(record);
+        var createdAt = Instant.ofEpochSecond(record.getLong(), record.getInt());
+        var title = readString(record);
+        var language = readString(record);
+        try {
+            var content = codec.decode(new ByteBufferInputStream(record), GistContent.class);
+            return new Gist(recordId, title, language, content.markdown(), content.html(), createdAt);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read gist " + id, e);
+        }
+    }
+
+    @Override
+    public GistPage list(String cursor, int limit) {
+        return GistPages.page(summaries, summary -> summary, cursor, limit);
+    }
+
+    private interface PayloadWriter {
+        void write(MappedByteBuffer segment, int position) throws IOException;
+    }
+
+    private void append(String id, String title, String language, Instant createdAt, int payloadLength,
+                        PayloadWriter payload) throws IOException {
+        var header = new ByteArrayOutputStream(64);
+        try (var out = new DataOutputStream(header)) {
+            writeString(out, id);
+            out.writeLong(createdAt.getEpochSecond());
+            out.writeInt(createdAt.getNano());
+            writeString(out, title);
+            writeString(out, language);
+        }
+        int length = header.size() + payloadLength;
+
+        long offset = reserve(length);
+        var segment = segments.get(segmentOf(offset));
+        int position = positionOf(offset);
+        segment.put(position + Integer.BYTES, header.toByteArray());
+        payload.write(segment, position + Integer.BYTES + header.size());
+        segment.putInt(position, length);
+        if (forceWrites) {
+            segment.force(position, Integer.BYTES + length);
+        }
+
+        offsets.put(id, offset);
+        summaries.put(id, new GistSummary(id, title, createdAt));
+    }
+
+    /**
+     * Reserves room for a record of {@code length} bytes at the end of the last segment, starting a
+     * new segment when it does not fit (or growing the last one if it is still empty), and returns
+     * its offset.
+     */
+    private synchronized long reserve(int length) throws IOException {
+        long needed = (long) Integer.BYTES + length;
+        if (appendPosition + needed > segments.getLast().capacity()) {
+            if (needed > Integer.MAX_VALUE) {
+                throw new IOException("Record too large: " + length + " bytes");
+            }
+            if (appendPosition == 0) {
+                segments.set(segments.size() - 1, map(segmentFile(segments.size() - 1), needed));
+            } else {
+                addSegment((int) Math.max(segmentBytes, needed));
+            }
+        }
+        int position = appendPosition;
+        appendPosition += (int) needed;
+        segments.getLast().putInt(position, -length);
+        return offset(segments.size() - 1, position);
+    }
+
+    private void addSegment(int capacity) throws IOException {
+        segments.add(map(segmentFile(segments.size()), capacity));
+        appendPosition = 0;
+    }
+
+    private Path segmentFile(int index) {
+        return directory.resolve("%s%06d%s".formatted(SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Indexes the records of a segment and returns the position after the last one.
+     */
+    private int scan(int index) {
+        var segment = segments.get(index);
+        int position = 0;
+        while (position + Integer.BYTES <= segment.capacity()) {
+            int length = segment.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length > 0) {
+                var record = segment.slice(position + Integer.BYTES, length);
+                var id = readString(record);
+                var createdAt = Instant.ofEpochSecond(record.getLong(), record.getInt());
+                var title = readString(record);
+                offsets.put(id, offset(index, position));
+                summaries.put(id, new GistSummary(id, title, createdAt));
+            } else {
+                log.warn("Skipping incomplete gist record at {} in segment {}", position, index);
+            }
+            position += Integer.BYTES + Math.abs(length);
+        }
+        return position;
+    }
+
+    private static MappedByteBuffer map(Path file, long capacity) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    private static boolean isSegment(Path file) {
+        var name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long offset(int segment, int position) {
+        return (long) segment << 32 | position;
+    }
+
+    private static int segmentOf(long offset) {
+        return (int) (offset >>> 32);
+    }
+
+    private static int positionOf(long offset) {
+        return (int) offset;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        var bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the remaining bytes of a buffer without copying them out first.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return length == 0 ? 0 : -1;
+            }
+            int n = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, n);
+            return n;
+        }
+    }
+}
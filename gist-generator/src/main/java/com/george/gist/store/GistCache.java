@@ -0,0 +1,99 @@
+package com.george.gist.store;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.george.gist.model.Gist;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * On-heap cache of deserialized gists in front of S3. Gists never change once created, so entries
+ * only leave the cache when evicted by size. Ids that were not found are remembered for a short
+ * time so repeated requests for a missing gist do not each go to S3.
+ *
+ * <p>Published as the {@code cache.*} meters tagged {@code cache=gists} and
+ * {@code cache=gists.missing}.
+ */
+@Component
+public class GistCache {
+
+    private static final Boolean MISSING = Boolean.TRUE;
+
+    private final Cache<String, Gist> gists;
+    private final Cache<String, Boolean> missing;
+    private final List<Consumer<String>> invalidationListeners = new CopyOnWriteArrayList<>();
+
+    public GistCache(MeterRegistry meterRegistry,
+                     @Value("${gist.cache.max-bytes:67108864}") long maxBytes,
+                     @Value("${gist.cache.missing.max-size:10000}") long missingMaxSize,
+                     @Value("${gist.cache.missing.ttl:30s}") Duration missingTtl) {
+        this.gists = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String id, Gist gist) -> weigh(gist))
+                .recordStats()
+                .build();
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(missingMaxSize)
+                .expireAfterWrite(missingTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, gists, "gists");
+        CaffeineCacheMetrics.monitor(meterRegistry, missing, "gists.missing");
+    }
+
+    /**
+     * Returns the gist with the given id, calling {@code loader} on a miss. Returns {@code null}
+     * without calling the loader when the id was recently found to be missing.
+     */
+    public Gist get(String id, Function<String, Gist> loader) {
+        if (missing.getIfPresent(id) != null) {
+            return null;
+        }
+        var gist = gists.get(id, loader);
+        if (gist == null) {
+            missing.put(id, MISSING);
+        }
+        return gist;
+    }
+
+    public void put(Gist gist) {
+        gists.put(gist.id(), gist);
+        missing.invalidate(gist.id());
+    }
+
+    /**
+     * Forgets the gist with the given id and remembers it as missing, for a gist that was served
+     * before it turned out it could not be stored. Listeners registered with
+     * {@link #onInvalidate(Consumer)} are told, so anything derived from the gist goes too.
+     */
+    public void invalidate(String id) {
+        gists.invalidate(id);
+        missing.put(id, MISSING);
+        invalidationListeners.forEach(listener -> listener.accept(id));
+    }
+
+    public void onInvalidate(Consumer<String> listener) {
+        invalidationListeners.add(listener);
+    }
+
+    /** Rough heap footprint: two bytes per char plus a fixed overhead for the record and strings. */
+    private static int weigh(Gist gist) {
+        long chars = length(gist.id()) + length(gist.title()) + length(gist.language())
+                + length(gist.markdown()) + length(gist.html());
+        return (int) Math.min(Integer.MAX_VALUE, 2 * chars + 256);
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
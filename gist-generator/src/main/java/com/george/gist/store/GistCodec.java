@@ -0,0 +1,119 @@
+package com.george.gist.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+/**
+ * Encodes stored objects in the {@link GistFormat} selected by {@code gist.store.format}.
+ * Every format except {@link GistFormat#JSON} starts with a four byte header, {@code GST} and the
+ * format id, so objects written in any format, including plain JSON written before the header
+ * existed, can always be decoded.
+ */
+@Component
+public class GistCodec {
+
+    private static final byte[] MAGIC = { 'G', 'S', 'T' };
+
+    private final ObjectMapper json = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final ObjectMapper smile = SmileMapper.builder().addModule(new JavaTimeModule()).build();
+    private final ObjectMapper cbor = CBORMapper.builder().addModule(new JavaTimeModule()).build();
+    private final GistFormat format;
+
+    public GistCodec(@Value("${gist.store.format:ZSTD_JSON}") GistFormat format) {
+        this.format = format;
+    }
+
+    public String contentType() {
+        return format == GistFormat.JSON ? "application/json" : "application/octet-stream";
+    }
+
+    public byte[] encode(Object value) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        writeHeader(format, bytes);
+        try (var out = compress(format, bytes)) {
+            mapper(format).writeValue(out, value);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes a {@link GistContent} into {@code out} as its markdown and HTML are read, without
+     * holding either in memory. The binary formats need the length of a string before its content,
+     * so when one of them is configured the content is streamed as {@link GistFormat#ZSTD_JSON}.
+     * {@code out} is closed when the content has been written.
+     */
+    public void encodeContent(Reader markdown, Reader html, OutputStream out) throws IOException {
+        var streamed = format == GistFormat.SMILE || format == GistFormat.CBOR ? GistFormat.ZSTD_JSON : format;
+        writeHeader(streamed, out);
+        try (var generator = json.getFactory().createGenerator(compress(streamed, out))) {
+            generator.writeStartObject();
+            generator.writeFieldName("markdown");
+            generator.writeString(markdown, -1);
+            generator.writeFieldName("html");
+            generator.writeString(html, -1);
+            generator.writeEndObject();
+        }
+    }
+
+    public <T> T decode(InputStream in, Class<T> type) throws IOException {
+        var header = in.readNBytes(MAGIC.length + 1);
+        GistFormat stored;
+        if (header.length == MAGIC.length + 1 && Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            stored = GistFormat.of(header[MAGIC.length]);
+        } else {
+            stored = GistFormat.JSON;
+            in = new SequenceInputStream(new ByteArrayInputStream(header), in);
+        }
+
+        return mapper(stored).readValue(decompress(stored, in), type);
+    }
+
+    private static void writeHeader(GistFormat format, OutputStream out) throws IOException {
+        if (format != GistFormat.JSON) {
+            out.write(MAGIC);
+            out.write(format.id());
+        }
+    }
+
+    private static OutputStream compress(GistFormat format, OutputStream out) throws IOException {
+        return switch (format) {
+            case GZIP_JSON -> new GZIPOutputStream(out);
+            case ZSTD_JSON -> new ZstdOutputStream(out);
+            default -> out;
+        };
+    }
+
+    private static InputStream decompress(GistFormat stored, InputStream in) throws IOException {
+        return switch (stored) {
+            case GZIP_JSON -> new GZIPInputStream(in);
+            case ZSTD_JSON -> new ZstdInputStream(in);
+            default -> in;
+        };
+    }
+
+    private ObjectMapper mapper(GistFormat stored) {
+        return switch (stored) {
+            case SMILE -> smile;
+            case CBOR -> cbor;
+            default -> json;
+        };
+    }
+}
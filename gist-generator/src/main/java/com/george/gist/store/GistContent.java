@@ -0,0 +1,11 @@
+package com.george.gist.store;
+
+/**
+ * The content blob shared by all gists with the same markdown. {@code html} is {@code null} when
+ * only markdown is stored.
+ */
+record GistContent(
+        String markdown,
+        String html
+) {
+}
@@ -0,0 +1,42 @@
+package com.george.gist.store;
+
+/**
+ * Encodings a gist can be stored in. The id is written in the object header, so gists stay
+ * readable after {@code gist.store.format} changes.
+ */
+public enum GistFormat {
+
+    /** Plain JSON, the original format. Written without a header. */
+    JSON(0),
+
+    /** JSON compressed with gzip. */
+    GZIP_JSON(1),
+
+    /** JSON compressed with zstd. */
+    ZSTD_JSON(2),
+
+    /** Jackson's binary JSON format. */
+    SMILE(3),
+
+    /** CBOR (RFC 8949). */
+    CBOR(4);
+
+    private final int id;
+
+    GistFormat(int id) {
+        this.id = id;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public static GistFormat of(int id) {
+        for (var format : values()) {
+            if (format.id == id) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown gist format " + id);
+    }
+}
@@ -0,0 +1,183 @@
+package com.george.gist.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.george.gist.model.GistPage;
+import com.george.gist.model.GistSummary;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+/**
+ * Sorted index of gist ids, titles and creation times, used to list gists a page at a time
+ * without listing or reading the whole bucket.
+ *
+ * <p>The index is persisted as a single gzipped binary object and rewritten every
+ * {@code gist.index.flush-interval} when it has changed. {@link S3GistStore} loads it at startup
+ * and indexes any gists written after the snapshot. Until that has finished the index holds only
+ * part of the stored gists, so it is not flushed before {@link #markLoaded()}.
+ */
+@Component
+@ConditionalOnProperty(name = "gist.store.backend", havingValue = "s3", matchIfMissing = true)
+public class GistIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(GistIndex.class);
+
+    private static final int MAGIC = 0x47495831; // "GIX1"
+    private static final int MAX_TITLE_LENGTH = 256;
+
+    private final ConcurrentSkipListMap<String, GistSummary> entries = new ConcurrentSkipListMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final ScheduledExecutorService flusher =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("gist-index-flusher").daemon().factory());
+    private final S3Client s3Client;
+    private final String indexKey;
+    private final Duration flushInterval;
+    private volatile long flushedVersion;
+    private volatile boolean loaded;
+
+    @Value("${spring.aws.bucket}")
+    private String bucketName;
+
+    public GistIndex(S3Client s3Client,
+                     @Value("${gist.index.key:index/gists.idx}") String indexKey,
+                     @Value("${gist.index.flush-interval:30s}") Duration flushInterval) {
+        this.s3Client = s3Client;
+        this.indexKey = indexKey;
+        this.flushInterval = flushInterval;
+    }
+
+    @PostConstruct
+    void start() {
+        long millis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        flusher.shutdownNow();
+        flushQuietly();
+    }
+
+    public void add(GistSummary summary) {
+        var title = summary.title();
+        if (title != null && title.length() > MAX_TITLE_LENGTH) {
+            summary = new GistSummary(summary.id(), title.substring(0, MAX_TITLE_LENGTH), summary.createdAt());
+        }
+        entries.put(summary.id(), summary);
+        version.incrementAndGet();
+    }
+
+    public void remove(String id) {
+        if (entries.remove(id) != null) {
+            version.incrementAndGet();
+        }
+    }
+
+    public boolean contains(String id) {
+        return entries.containsKey(id);
+    }
+
+    /**
+     * Returns up to {@code limit} gists older than {@code cursor}, newest first, or the newest gists
+     * when {@code cursor} is {@code null}.
+     */
+    public GistPage page(String cursor, int limit) {
+        return GistPages.page(entries, Function.identity(), cursor, limit);
+    }
+
+    /**
+     * Loads the persisted snapshot into memory and returns the highest id it contained, or
+     * {@code null} if there is no snapshot. Entries read before a failure stay in memory.
+     */
+    public String load() throws IOException {
+        String lastId = null;
+        try (var in = new DataInputStream(new GZIPInputStream(s3Client.getObject(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(indexKey)
+                .build())))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Unrecognized gist index format");
+            }
+            while (in.readBoolean()) {
+                var id = in.readUTF();
+                var createdAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+                var title = in.readBoolean() ? in.readUTF() : null;
+                entries.putIfAbsent(id, new GistSummary(id, title, createdAt));
+                lastId = id;
+            }
+        } catch (NoSuchKeyException e) {
+            return null;
+        }
+        return lastId;
+    }
+
+    /**
+     * Marks the index as holding every stored gist, which allows it to be flushed.
+     */
+    public void markLoaded() {
+        loaded = true;
+    }
+
+    public void flush() throws IOException {
+        long current = version.get();
+        // Writing a partly loaded index would replace the snapshot and lose the gists not loaded yet.
+        if (!loaded || current == flushedVersion) {
+            return;
+        }
+
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(MAGIC);
+            for (var entry : entries.values()) {
+                out.writeBoolean(true);
+                out.writeUTF(entry.id());
+                out.writeLong(entry.createdAt().getEpochSecond());
+                out.writeInt(entry.createdAt().getNano());
+                out.writeBoolean(entry.title() != null);
+                if (entry.title() != null) {
+                    out.writeUTF(entry.title());
+                }
+            }
+            out.writeBoolean(false);
+        }
+        s3Client.putObject(PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(indexKey)
+                .contentType("application/octet-stream")
+                .build(), RequestBody.fromBytes(bytes.toByteArray()));
+        flushedVersion = current;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Could not write gist index {}: {}", indexKey, e.getMessage());
+        }
+    }
+}
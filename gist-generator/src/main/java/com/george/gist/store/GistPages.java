@@ -0,0 +1,34 @@
+package com.george.gist.store;
+
+import java.util.ArrayList;
+import java.util.NavigableMap;
+import java.util.function.Function;
+
+import com.george.gist.model.GistPage;
+import com.george.gist.model.GistSummary;
+
+/**
+ * Pages through gists kept in id order. Gist ids are ULIDs, so id order is creation order and a
+ * page is newest first, starting after the cursor id.
+ */
+final class GistPages {
+
+    private GistPages() {
+    }
+
+    /**
+     * Returns up to {@code limit} gists older than {@code cursor}, newest first, or the newest gists
+     * when {@code cursor} is {@code null}.
+     */
+    static <T> GistPage page(NavigableMap<String, T> entries, Function<T, GistSummary> summary, String cursor,
+                             int limit) {
+        var view = cursor == null ? entries.descendingMap() : entries.headMap(cursor, false).descendingMap();
+        var items = new ArrayList<GistSummary>(limit);
+        var it = view.values().iterator();
+        while (items.size() < limit && it.hasNext()) {
+            items.add(summary.apply(it.next()));
+        }
+        var nextCursor = it.hasNext() && !items.isEmpty() ? items.getLast().id() : null;
+        return new GistPage(items, nextCursor);
+    }
+}
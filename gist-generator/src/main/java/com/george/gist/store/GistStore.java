@@ -0,0 +1,38 @@
+package com.george.gist.store;
+
+import java.io.InputStream;
+import java.time.Instant;
+
+import com.george.gist.model.Gist;
+import com.george.gist.model.GistPage;
+import com.george.gist.model.GistSummary;
+
+/**
+ * Where gists are kept. The backend is chosen with {@code gist.store.backend}: {@code s3}
+ * ({@link S3GistStore}, the default), {@code file} ({@link FileGistStore}) or {@code memory}
+ * ({@link InMemoryGistStore}).
+ */
+public interface GistStore {
+
+    /**
+     * Saves a gist. It can be found and listed as soon as this returns.
+     */
+    void save(Gist gist);
+
+    /**
+     * Saves a gist whose markdown is read from {@code markdown} as it arrives and rendered by the
+     * store, for gists too large to hold in memory.
+     */
+    GistSummary saveStream(String id, String title, String language, Instant createdAt, InputStream markdown);
+
+    /**
+     * Returns the gist with the given id, or {@code null} if there is none.
+     */
+    Gist find(String id);
+
+    /**
+     * Returns up to {@code limit} gists older than {@code cursor}, newest first, or the newest gists
+     * when {@code cursor} is {@code null}.
+     */
+    GistPage list(String cursor, int limit);
+}
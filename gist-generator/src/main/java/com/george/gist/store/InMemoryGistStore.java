@@ -0,0 +1,68 @@
+package com.george.gist.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.george.gist.model.Gist;
+import com.george.gist.model.GistPage;
+import com.george.gist.model.GistSummary;
+import com.george.gist.service.RenderedHtmlCache;
+
+/**
+ * Keeps gists on the heap and nowhere else ({@code gist.store.backend=memory}), so the web tier and
+ * rendering can be run and profiled without storage or network in the way. Gists are lost on
+ * restart.
+ */
+@Component
+@ConditionalOnProperty(name = "gist.store.backend", havingValue = "memory")
+public class InMemoryGistStore implements GistStore {
+
+    private final ConcurrentSkipListMap<String, Gist> gists = new ConcurrentSkipListMap<>();
+    private final RenderedHtmlCache renderedHtml;
+
+    public InMemoryGistStore(RenderedHtmlCache renderedHtml) {
+        this.renderedHtml = renderedHtml;
+    }
+
+    @Override
+    public void save(Gist gist) {
+        gists.put(gist.id(), gist);
+    }
+
+    /**
+     * Reads the whole markdown into memory, where the gist is kept anyway.
+     */
+    @Override
+    public GistSummary saveStream(String id, String title, String language, Instant createdAt,
+                                  InputStream markdown) {
+        String md;
+        try {
+            md = new String(markdown.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (md.isBlank()) {
+            throw new RuntimeException("Markdown required");
+        }
+        var gist = new Gist(id, title, language, md, renderedHtml.toSafeHtml(md), createdAt);
+        save(gist);
+        return GistSummary.of(gist);
+    }
+
+    @Override
+    public Gist find(String id) {
+        return gists.get(id);
+    }
+
+    @Override
+    public GistPage list(String cursor, int limit) {
+        return GistPages.page(gists, GistSummary::of, cursor, limit);
+    }
+}
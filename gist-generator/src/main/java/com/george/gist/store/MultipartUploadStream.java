@@ -0,0 +1,176 @@
+package com.george.gist.store;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+/**
+ * Uploads what is written to it as one S3 object, in parts of {@code partSize} bytes. At most
+ * {@code maxPartsInFlight} parts upload at once and their buffers are reused, so the stream holds
+ * {@code maxPartsInFlight + 1} part buffers at most however much is written. Content that fits in
+ * one part is stored with a single put instead of a multipart upload.
+ *
+ * <p>Closing the stream only ends writing. The object appears when {@link #complete()} returns;
+ * {@link #abort()} discards the parts uploaded so far. S3 requires every part but the last to be
+ * at least 5 MiB.
+ */
+final class MultipartUploadStream extends OutputStream {
+
+    private final S3AsyncClient s3AsyncClient;
+    private final String bucket;
+    private final String key;
+    private final String contentType;
+    private final int partSize;
+    private final int maxBuffers;
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+
+    private int buffersAllocated;
+    private byte[] buffer;
+    private int position;
+    private String uploadId;
+
+    MultipartUploadStream(S3AsyncClient s3AsyncClient, String bucket, String key, String contentType,
+                          int partSize, int maxPartsInFlight) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.bucket = bucket;
+        this.key = key;
+        this.contentType = contentType;
+        this.partSize = partSize;
+        this.maxBuffers = maxPartsInFlight + 1;
+        this.freeBuffers = new ArrayBlockingQueue<>(maxBuffers);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        nextBuffer();
+        buffer[position++] = (byte) b;
+        if (position == partSize) {
+            uploadPart();
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            nextBuffer();
+            int n = Math.min(length, partSize - position);
+            System.arraycopy(bytes, offset, buffer, position, n);
+            position += n;
+            offset += n;
+            length -= n;
+            if (position == partSize) {
+                uploadPart();
+            }
+        }
+    }
+
+    /**
+     * Uploads the last part and completes the upload, waiting for every part.
+     */
+    void complete() throws IOException {
+        if (uploadId == null) {
+            var data = buffer == null ? new byte[0] : buffer;
+            s3AsyncClient.putObject(PutObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .contentType(contentType)
+                    .build(), AsyncRequestBody.fromRemainingByteBufferUnsafe(ByteBuffer.wrap(data, 0, position)))
+                    .join();
+            return;
+        }
+        if (position > 0) {
+            uploadPart();
+        }
+        var completed = parts.stream().map(CompletableFuture::join).toList();
+        s3AsyncClient.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(completed).build())
+                .build()).join();
+    }
+
+    /**
+     * Discards the parts uploaded so far, once the ones in flight have finished.
+     */
+    void abort() {
+        if (uploadId == null) {
+            return;
+        }
+        CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+                .handle((ignored, error) -> null)
+                .thenCompose(ignored -> s3AsyncClient.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .build()))
+                .join();
+    }
+
+    private void nextBuffer() throws IOException {
+        if (buffer != null) {
+            return;
+        }
+        buffer = freeBuffers.poll();
+        if (buffer == null && buffersAllocated < maxBuffers) {
+            buffersAllocated++;
+            buffer = new byte[partSize];
+        }
+        if (buffer == null) {
+            try {
+                buffer = freeBuffers.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a part upload");
+            }
+        }
+        position = 0;
+    }
+
+    private void uploadPart() throws IOException {
+        // Fail fast instead of uploading the rest of an object that cannot complete.
+        for (var part : parts) {
+            if (part.isCompletedExceptionally()) {
+                part.join();
+            }
+        }
+        if (uploadId == null) {
+            uploadId = s3AsyncClient.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .contentType(contentType)
+                    .build()).join().uploadId();
+        }
+
+        int partNumber = parts.size() + 1;
+        var data = buffer;
+        buffer = null;
+        parts.add(s3AsyncClient.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) position)
+                        .build(), AsyncRequestBody.fromRemainingByteBufferUnsafe(ByteBuffer.wrap(data, 0, position)))
+                .whenComplete((response, error) -> freeBuffers.offer(data))
+                .thenApply(response -> CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build()));
+        position = 0;
+    }
+}
@@ -1,15 +1,39 @@
 package com.george.gist.store;
 
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import com.george.gist.model.Gist;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.george.gist.model.GistPage;
+import com.george.gist.model.GistSummary;
+import com.george.gist.service.RenderedHtmlCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
-import software.amazon.awssdk.core.sync.RequestBody;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
@@ -17,62 +41,440 @@ import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
 
+/**
+ * Stores gists in S3 ({@code gist.store.backend=s3}, the default), encoded by {@link GistCodec}. Each gist is a small metadata object under
+ * {@code gists/} that points by {@link ContentHash} to a content blob under {@code blobs/}, so
+ * gists with the same markdown share one stored copy of it and its HTML. With
+ * {@code gist.store.store-html=false} blobs hold only the markdown and the HTML is rendered on read
+ * through {@link RenderedHtmlCache}.
+ *
+ * <p>Saves are write-behind: {@link #save(Gist)} serializes the gist, keeps it in an in-memory
+ * buffer and queues it, and a background writer uploads queued gists with {@link S3AsyncClient},
+ * with at most {@code gist.store.max-concurrent-writes} uploads in flight. Reads check the buffer
+ * first, so a gist is readable as soon as {@code save} returns. The bucket is checked once at
+ * startup instead of on every save. Reads that miss the buffer go through {@link GistCache}.
+ * A failed upload is retried after an exponential backoff with jitter, starting at
+ * {@code gist.store.retry-backoff-ms} and capped at {@code gist.store.max-retry-backoff-ms}; a
+ * saved gist stays in the buffer until it is written, however long S3 is unavailable.
+ *
+ * <p>Gists too large to hold in memory are saved with {@link #saveStream}, which writes through
+ * and uploads the content blob in parts of {@code gist.store.part-size} bytes.
+ */
 @Component
-public class S3GistStore {
+@ConditionalOnProperty(name = "gist.store.backend", havingValue = "s3", matchIfMissing = true)
+public class S3GistStore implements GistStore {
+
+    private static final Logger log = LoggerFactory.getLogger(S3GistStore.class);
+
+    private static final String PREFIX = "gists/";
+    private static final String SUFFIX = ".json";
+    private static final String BLOB_PREFIX = "blobs/";
 
-    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
     private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
+    private final GistCache gistCache;
+    private final GistIndex gistIndex;
+    private final GistCodec codec;
+    private final RenderedHtmlCache renderedHtml;
+    private final boolean storeHtml;
+    private final Cache<String, Boolean> knownBlobs;
+
+    private final Map<String, PendingWrite> unflushed = new ConcurrentHashMap<>();
+    private final BlockingQueue<PendingWrite> writeQueue;
+    private final Semaphore inFlight;
+    private final int maxConcurrentWrites;
+    private final long enqueueTimeoutMillis;
+    private final long retryBackoffMillis;
+    private final long maxRetryBackoffMillis;
+    private final Thread writer;
+    private final ScheduledExecutorService retries =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("gist-write-retry").daemon().factory());
 
-    @Value("spring.aws.bucket")
+    private volatile boolean bucketReady;
+    private volatile boolean running = true;
+
+    @Value("${spring.aws.bucket}")
     private String bucketName;
 
-    public S3GistStore(S3Client s3Client) {
+    @Value("${gist.store.part-size:8388608}")
+    private int partSize;
+
+    @Value("${gist.store.parts-in-flight:2}")
+    private int partsInFlight;
+
+    /**
+     * A queued save. {@code blob} is {@code null} when the content blob is already stored.
+     */
+    private record PendingWrite(Gist gist, byte[] metadata, String contentHash, byte[] blob, int attempt) {
+
+        PendingWrite retry() {
+            return new PendingWrite(gist, metadata, contentHash, blob, attempt + 1);
+        }
+    }
+
+    public S3GistStore(S3Client s3Client, S3AsyncClient s3AsyncClient, GistCache gistCache, GistIndex gistIndex,
+                       GistCodec codec, RenderedHtmlCache renderedHtml,
+                       @Value("${gist.store.store-html:true}") boolean storeHtml,
+                       @Value("${gist.store.known-blobs:100000}") long knownBlobsSize,
+                       @Value("${gist.store.write-queue-capacity:10000}") int writeQueueCapacity,
+                       @Value("${gist.store.max-concurrent-writes:64}") int maxConcurrentWrites,
+                       @Value("${gist.store.enqueue-timeout-ms:1000}") long enqueueTimeoutMillis,
+                       @Value("${gist.store.retry-backoff-ms:100}") long retryBackoffMillis,
+                       @Value("${gist.store.max-retry-backoff-ms:30000}") long maxRetryBackoffMillis) {
         this.s3Client = s3Client;
+        this.s3AsyncClient = s3AsyncClient;
+        this.gistCache = gistCache;
+        this.gistIndex = gistIndex;
+        this.codec = codec;
+        this.renderedHtml = renderedHtml;
+        this.storeHtml = storeHtml;
+        this.knownBlobs = Caffeine.newBuilder().maximumSize(knownBlobsSize).build();
+        this.writeQueue = new ArrayBlockingQueue<>(writeQueueCapacity);
+        this.inFlight = new Semaphore(maxConcurrentWrites);
+        this.maxConcurrentWrites = maxConcurrentWrites;
+        this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.maxRetryBackoffMillis = maxRetryBackoffMillis;
+        this.writer = Thread.ofPlatform().name("gist-writer").daemon().unstarted(this::drainWrites);
+    }
+
+    @PostConstruct
+    void start() {
+        try {
+            ensureBucket();
+        } catch (Exception e) {
+            // S3 may not be up yet; the writer checks again before the first upload.
+            log.warn("Could not verify bucket {} at startup: {}", bucketName, e.getMessage());
+        }
+        writer.start();
+        Thread.ofPlatform().name("gist-index-loader").daemon().start(this::loadIndex);
     }
 
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        retries.shutdownNow();
+        // Let the uploads in flight finish, then make a last attempt at every gist not written yet,
+        // whether it was queued or waiting for a retry.
+        if (inFlight.tryAcquire(maxConcurrentWrites, 30, TimeUnit.SECONDS)) {
+            inFlight.release(maxConcurrentWrites);
+        }
+        writeQueue.clear();
+        for (PendingWrite write : List.copyOf(unflushed.values())) {
+            inFlight.acquire();
+            upload(write);
+        }
+        if (!inFlight.tryAcquire(maxConcurrentWrites, 30, TimeUnit.SECONDS)) {
+            log.warn("{} gists were still being written at shutdown", unflushed.size());
+        } else if (!unflushed.isEmpty()) {
+            log.error("Could not write gists {} before shutdown", unflushed.keySet());
+        }
+    }
+
+    @Override
     public void save(Gist gist) {
         try {
-            if (!bucketExists(bucketName)) {
-                createBucket(bucketName);
+            var contentHash = ContentHash.of(gist.markdown());
+            var metadata = codec.encode(new StoredGist(gist.id(), gist.title(), gist.language(), gist.createdAt(),
+                    contentHash, null, null));
+            var blob = knownBlobs.getIfPresent(contentHash) != null ? null
+                    : codec.encode(new GistContent(gist.markdown(), storeHtml ? gist.html() : null));
+            var write = new PendingWrite(gist, metadata, contentHash, blob, 1);
+            // Cached and indexed before the writer can see it, so a drop by the writer is not undone.
+            unflushed.put(gist.id(), write);
+            gistCache.put(gist);
+            gistIndex.add(GistSummary.of(gist));
+            if (!writeQueue.offer(write, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                unflushed.remove(gist.id(), write);
+                gistIndex.remove(gist.id());
+                gistCache.invalidate(gist.id());
+                throw new RuntimeException("Gist write queue is full");
             }
-            var key = "gists/" + gist.id() + ".json";
-            var data = mapper.writeValueAsBytes(gist);
-            s3Client.putObject(PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(key)
-                    .contentType("application/json")
-                    .build(), RequestBody.fromBytes(data));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while saving gist", e);
+        } catch (RuntimeException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to save gist", e);
         }
     }
 
+    /**
+     * Saves a gist whose markdown is read from {@code markdown} as it arrives. The content blob is
+     * keyed by the hash of the whole markdown and holds the markdown before the HTML, so both are
+     * spooled first and the blob is then uploaded through a {@link MultipartUploadStream}. Unlike
+     * {@link #save(Gist)} the gist is stored when this returns, and it is not cached.
+     */
+    @Override
+    public GistSummary saveStream(String id, String title, String language, Instant createdAt,
+                                  InputStream markdown) {
+        try (var spooled = SpooledMarkdown.spool(markdown, renderedHtml)) {
+            var contentHash = spooled.contentHash();
+            if (!bucketReady) {
+                ensureBucket();
+            }
+            if (knownBlobs.getIfPresent(contentHash) == null) {
+                var upload = new MultipartUploadStream(s3AsyncClient, bucketName, blobKey(contentHash),
+                        codec.contentType(), partSize, partsInFlight);
+                try (var md = spooled.markdown(); var html = spooled.html()) {
+                    codec.encodeContent(md, html, upload);
+                    upload.complete();
+                } catch (Exception e) {
+                    upload.abort();
+                    throw e;
+                }
+                knownBlobs.put(contentHash, Boolean.TRUE);
+            }
+            put(key(id), codec.encode(new StoredGist(id, title, language, createdAt, contentHash, null, null))).join();
+
+            var summary = new GistSummary(id, title, createdAt);
+            gistIndex.add(summary);
+            return summary;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to save gist", e);
+        }
+    }
+
+    @Override
     public Gist find(String id) {
-        var key = "gists/" + id + ".json";
+        var pending = unflushed.get(id);
+        if (pending != null) {
+            return pending.gist();
+        }
+        return gistCache.get(id, this::fetch);
+    }
+
+    private Gist fetch(String id) {
+        var stored = read(key(id), StoredGist.class);
+        if (stored == null) {
+            return null;
+        }
+
+        var markdown = stored.markdown();
+        var html = stored.html();
+        if (stored.contentHash() != null) {
+            var content = read(blobKey(stored.contentHash()), GistContent.class);
+            if (content == null) {
+                throw new RuntimeException("Missing content blob " + stored.contentHash() + " for gist " + id);
+            }
+            knownBlobs.put(stored.contentHash(), Boolean.TRUE);
+            markdown = content.markdown();
+            html = content.html();
+        }
+        if (html == null) {
+            html = stored.contentHash() != null
+                    ? renderedHtml.toSafeHtml(stored.contentHash(), markdown)
+                    : renderedHtml.toSafeHtml(markdown);
+        }
+        return new Gist(stored.id(), stored.title(), stored.language(), markdown, html, stored.createdAt());
+    }
+
+    private <T> T read(String key, Class<T> type) {
         try (var obj = s3Client.getObject(GetObjectRequest.builder()
                 .bucket(bucketName)
                 .key(key)
                 .build())) {
-            return mapper.readValue(obj, Gist.class);
+            return codec.decode(obj, type);
         } catch (NoSuchKeyException e) {
             return null;
         } catch (Exception e) {
-            throw new RuntimeException("Failed to read gist", e);
+            throw new RuntimeException("Failed to read " + key, e);
         }
     }
 
-    public List<String> listIds() {
-        var res = s3Client.listObjectsV2(ListObjectsV2Request.builder()
+    /**
+     * Returns a page of gists, newest first, from the index. Unflushed gists are included.
+     */
+    @Override
+    public GistPage list(String cursor, int limit) {
+        return gistIndex.page(cursor, limit);
+    }
+
+    /**
+     * Lists the ids of stored gists in id order, starting after {@code startAfter} when it is not
+     * {@code null}. Pages of keys are fetched from S3 as the stream is consumed.
+     */
+    public Stream<String> streamIds(String startAfter) {
+        var request = ListObjectsV2Request.builder()
                 .bucket(bucketName)
-                .prefix("gists/")
-                .build());
-        return res.contents().stream()
+                .prefix(PREFIX);
+        if (startAfter != null) {
+            request.startAfter(key(startAfter));
+        }
+        return s3Client.listObjectsV2Paginator(request.build())
+                .contents()
+                .stream()
                 .map(S3Object::key)
-                .map(k -> k.substring(k.lastIndexOf('/') + 1, k.indexOf(".json")))
-                .toList();
+                .filter(k -> k.endsWith(SUFFIX))
+                .map(k -> k.substring(PREFIX.length(), k.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Loads the persisted index and adds the gists stored after its snapshot was taken. Only their
+     * metadata objects are read; a gist that cannot be read is logged and left out. When the
+     * snapshot cannot be read the index is rebuilt from every stored gist instead. Until this
+     * succeeds the index is not flushed, and it is retried with a growing delay while the store runs.
+     */
+    private void loadIndex() {
+        long delayMillis = TimeUnit.SECONDS.toMillis(1);
+        while (running) {
+            try {
+                indexStoredGists();
+                gistIndex.markLoaded();
+                return;
+            } catch (Exception e) {
+                log.warn("Could not load gist index, retrying in {} ms: {}", delayMillis, e.getMessage());
+            }
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            delayMillis = Math.min(delayMillis * 2, TimeUnit.MINUTES.toMillis(1));
+        }
+    }
+
+    private void indexStoredGists() {
+        String lastIndexed;
+        try {
+            lastIndexed = gistIndex.load();
+        } catch (Exception e) {
+            log.warn("Could not read gist index snapshot, rebuilding it from {}: {}", PREFIX, e.getMessage());
+            lastIndexed = null;
+        }
+        try (var ids = streamIds(lastIndexed)) {
+            ids.filter(id -> !gistIndex.contains(id)).forEach(this::indexStored);
+        }
+    }
+
+    private void indexStored(String id) {
+        try {
+            var stored = read(key(id), StoredGist.class);
+            if (stored != null) {
+                gistIndex.add(new GistSummary(stored.id(), stored.title(), stored.createdAt()));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not index gist {}: {}", id, e.getMessage());
+        }
+    }
+
+    private void drainWrites() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (running) {
+            try {
+                batch.add(writeQueue.take());
+                writeQueue.drainTo(batch, maxConcurrentWrites - 1);
+                if (!bucketReady) {
+                    ensureBucket();
+                }
+                for (PendingWrite write : batch) {
+                    inFlight.acquire();
+                    upload(write);
+                }
+            } catch (InterruptedException e) {
+                // Re-queue the batch we took so stop() flushes it.
+                batch.forEach(writeQueue::offer);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Could not prepare bucket {}: {}", bucketName, e.getMessage());
+                batch.forEach(write -> retryLater(write, e));
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Starts an asynchronous upload of the content blob, if needed, then the metadata, so the
+     * metadata never points at a blob that is not stored yet. The caller must hold an
+     * {@link #inFlight} permit, which is released when the upload completes.
+     */
+    private void upload(PendingWrite write) {
+        var blobUpload = write.blob() == null || knownBlobs.getIfPresent(write.contentHash()) != null
+                ? CompletableFuture.<PutObjectResponse>completedFuture(null)
+                : put(blobKey(write.contentHash()), write.blob())
+                        .thenApply(response -> {
+                            knownBlobs.put(write.contentHash(), Boolean.TRUE);
+                            return response;
+                        });
+        blobUpload.thenCompose(response -> put(key(write.gist().id()), write.metadata()))
+                .whenComplete((response, error) -> {
+                    inFlight.release();
+                    if (error == null) {
+                        unflushed.remove(write.gist().id(), write);
+                    } else {
+                        retryLater(write, error);
+                    }
+                });
+    }
+
+    private CompletableFuture<PutObjectResponse> put(String key, byte[] data) {
+        return s3AsyncClient.putObject(PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(codec.contentType())
+                .build(), AsyncRequestBody.fromBytes(data));
+    }
+
+    /**
+     * Queues a failed write again after a backoff. The gist stays in {@link #unflushed}, so it is
+     * still served and {@link #stop()} makes a last attempt if the store stops first.
+     */
+    private void retryLater(PendingWrite write, Throwable error) {
+        var retry = write.retry();
+        if (!unflushed.replace(write.gist().id(), write, retry) || !running) {
+            return;
+        }
+        long delayMillis = backoff(write.attempt());
+        log.warn("Write of gist {} failed (attempt {}), retrying in {} ms: {}", write.gist().id(), write.attempt(),
+                delayMillis, error.getMessage());
+        try {
+            retries.schedule(() -> requeue(retry), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Stopping; stop() writes what is left.
+        }
+    }
+
+    private void requeue(PendingWrite write) {
+        try {
+            // Blocks while the queue is full rather than dropping a gist the client was told is saved.
+            writeQueue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Doubles the delay with every attempt up to the cap, and picks a random point in its upper
+     * half so that writes failing together do not retry together.
+     */
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxRetryBackoffMillis, retryBackoffMillis << Math.min(attempt - 1, 20));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling - ceiling / 2 + 1);
+    }
+
+    private static String key(String id) {
+        return PREFIX + id + SUFFIX;
+    }
+
+    private static String blobKey(String contentHash) {
+        return BLOB_PREFIX + contentHash;
+    }
+
+    private void ensureBucket() {
+        if (!bucketExists(bucketName)) {
+            createBucket(bucketName);
+        }
+        bucketReady = true;
     }
 
     private boolean bucketExists(String name) {
@@ -87,4 +489,4 @@ public class S3GistStore {
     private void createBucket(String name) {
         s3Client.createBucket(CreateBucketRequest.builder().bucket(name).build());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package com.george.gist.store;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.george.gist.service.RenderedHtmlCache;
+
+/**
+ * Markdown read from a stream and its HTML, rendered a chunk at a time, spooled to temporary files
+ * so that gists too large to hold in memory can be stored. The {@link ContentHash} is taken as the
+ * markdown streams past. Closing deletes the files.
+ */
+final class SpooledMarkdown implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SpooledMarkdown.class);
+
+    private final Path markdownFile;
+    private final Path htmlFile;
+    private String contentHash;
+
+    private SpooledMarkdown() throws IOException {
+        markdownFile = Files.createTempFile("gist-", ".md");
+        try {
+            htmlFile = Files.createTempFile("gist-", ".html");
+        } catch (IOException e) {
+            deleteQuietly(markdownFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Spools {@code markdown} and its HTML, throwing when the markdown is blank.
+     */
+    static SpooledMarkdown spool(InputStream markdown, RenderedHtmlCache renderedHtml) throws IOException {
+        var spooled = new SpooledMarkdown();
+        try {
+            var digest = ContentHash.newDigest();
+            try (var spool = new SpoolingReader(new InputStreamReader(markdown, StandardCharsets.UTF_8),
+                         new OutputStreamWriter(new DigestOutputStream(Files.newOutputStream(spooled.markdownFile),
+                                 digest), StandardCharsets.UTF_8));
+                 var html = Files.newBufferedWriter(spooled.htmlFile)) {
+                renderedHtml.writeSafeHtml(spool, html);
+                if (spool.blank()) {
+                    throw new RuntimeException("Markdown required");
+                }
+            }
+            spooled.contentHash = ContentHash.hex(digest);
+            return spooled;
+        } catch (IOException | RuntimeException e) {
+            spooled.close();
+            throw e;
+        }
+    }
+
+    String contentHash() {
+        return contentHash;
+    }
+
+    Reader markdown() throws IOException {
+        return Files.newBufferedReader(markdownFile);
+    }
+
+    Reader html() throws IOException {
+        return Files.newBufferedReader(htmlFile);
+    }
+
+    @Override
+    public void close() {
+        deleteQuietly(markdownFile);
+        deleteQuietly(htmlFile);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Copies the characters read through it to {@code copy}, noting whether any is not whitespace.
+     */
+    private static final class SpoolingReader extends FilterReader {
+
+        private final Writer copy;
+        private boolean blank = true;
+
+        SpoolingReader(Reader in, Writer copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c != -1) {
+                copy.write(c);
+                blank &= Character.isWhitespace(c);
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                copy.write(buffer, offset, n);
+                for (int i = offset; blank && i < offset + n; i++) {
+                    blank = Character.isWhitespace(buffer[i]);
+                }
+            }
+            return n;
+        }
+
+        boolean blank() {
+            return blank;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (copy) {
+                super.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.george.gist.store;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The per-gist object. New gists only hold metadata and the {@code contentHash} of their content
+ * blob; gists written before content was split out carry {@code markdown} and {@code html} inline.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record StoredGist(
+        String id,
+        String title,
+        String language,
+        Instant createdAt,
+        String contentHash,
+        String markdown,
+        String html
+) {
+}
@@ -0,0 +1,260 @@
+package com.george.gist;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An in-process stand-in for S3 over plain HTTP, for tests and load tests of the real clients.
+ * It keeps objects in memory and supports what the gist store uses with path-style addressing:
+ * bucket head and create, object put, get, head and delete, ListObjectsV2 and multipart uploads.
+ * Every response can be delayed by a fixed {@code latency} to model S3 round trips.
+ */
+public final class InMemoryS3 implements AutoCloseable {
+
+    static {
+        // Without TCP_NODELAY, delayed ACKs add about 40 ms to responses written in two parts, and
+        // beyond 200 idle keep-alive connections the server closes them under the client.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        System.setProperty("sun.net.httpserver.maxIdleConnections", "4096");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Duration latency;
+    private final Set<String> buckets = ConcurrentHashMap.newKeySet();
+    private final ConcurrentSkipListMap<String, byte[]> objects = new ConcurrentSkipListMap<>();
+    private final Map<String, ConcurrentSkipListMap<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+
+    public InMemoryS3(Duration latency) throws IOException {
+        this.latency = latency;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public URI endpoint() {
+        return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public byte[] object(String bucket, String key) {
+        return objects.get(bucket + "/" + key);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            if (!latency.isZero()) {
+                Thread.sleep(latency);
+            }
+            var path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), StandardCharsets.UTF_8).substring(1);
+            var query = query(exchange.getRequestURI().getRawQuery());
+            int slash = path.indexOf('/');
+            if (slash < 0 || slash == path.length() - 1) {
+                handleBucket(exchange, slash < 0 ? path : path.substring(0, slash), query);
+            } else {
+                handleObject(exchange, path, query);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleBucket(HttpExchange exchange, String bucket, Map<String, String> query) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "PUT" -> {
+                buckets.add(bucket);
+                respond(exchange, 200, null);
+            }
+            case "HEAD" -> respond(exchange, buckets.contains(bucket) ? 200 : 404, null);
+            case "GET" -> list(exchange, bucket, query);
+            default -> respond(exchange, 405, null);
+        }
+    }
+
+    private void handleObject(HttpExchange exchange, String path, Map<String, String> query) throws IOException {
+        var uploadId = query.get("uploadId");
+        switch (exchange.getRequestMethod()) {
+            case "PUT" -> {
+                var body = body(exchange);
+                if (uploadId != null) {
+                    uploads.get(uploadId).put(Integer.parseInt(query.get("partNumber")), body);
+                } else {
+                    objects.put(path, body);
+                }
+                exchange.getResponseHeaders().add("ETag", etag(body));
+                respond(exchange, 200, null);
+            }
+            case "POST" -> {
+                if (query.containsKey("uploads")) {
+                    var id = UUID.randomUUID().toString();
+                    uploads.put(id, new ConcurrentSkipListMap<>());
+                    respond(exchange, 200, "<InitiateMultipartUploadResult><UploadId>" + id
+                            + "</UploadId></InitiateMultipartUploadResult>");
+                } else {
+                    body(exchange);
+                    var object = new ByteArrayOutputStream();
+                    uploads.remove(uploadId).values().forEach(object::writeBytes);
+                    objects.put(path, object.toByteArray());
+                    respond(exchange, 200, "<CompleteMultipartUploadResult><ETag>" + etag(object.toByteArray())
+                            + "</ETag></CompleteMultipartUploadResult>");
+                }
+            }
+            case "GET", "HEAD" -> {
+                var object = objects.get(path);
+                if (object == null) {
+                    respond(exchange, 404, "<Error><Code>NoSuchKey</Code><Message>No such key</Message></Error>");
+                    return;
+                }
+                exchange.getResponseHeaders().add("ETag", etag(object));
+                if (exchange.getRequestMethod().equals("HEAD")) {
+                    exchange.getResponseHeaders().add("Content-Length", Integer.toString(object.length));
+                    exchange.sendResponseHeaders(200, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, object.length);
+                    exchange.getResponseBody().write(object);
+                }
+            }
+            case "DELETE" -> {
+                if (uploadId != null) {
+                    uploads.remove(uploadId);
+                } else {
+                    objects.remove(path);
+                }
+                respond(exchange, 204, null);
+            }
+            default -> respond(exchange, 405, null);
+        }
+    }
+
+    private void list(HttpExchange exchange, String bucket, Map<String, String> query) throws IOException {
+        var prefix = bucket + "/" + query.getOrDefault("prefix", "");
+        // The continuation token is simply the last key listed.
+        var after = query.getOrDefault("continuation-token", query.get("start-after"));
+        var startAfter = after != null ? bucket + "/" + after : null;
+        int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+        var xml = new StringBuilder("<ListBucketResult><Name>").append(bucket).append("</Name>");
+        var keys = (startAfter != null && startAfter.compareTo(prefix) >= 0
+                ? objects.tailMap(startAfter, false) : objects.tailMap(prefix, true)).keySet();
+        int count = 0;
+        String last = null;
+        boolean truncated = false;
+        for (var key : keys) {
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            if (count == maxKeys) {
+                truncated = true;
+                break;
+            }
+            last = key.substring(bucket.length() + 1);
+            xml.append("<Contents><Key>").append(last).append("</Key><Size>")
+                    .append(objects.get(key).length).append("</Size></Contents>");
+            count++;
+        }
+        xml.append("<KeyCount>").append(count).append("</KeyCount><IsTruncated>").append(truncated)
+                .append("</IsTruncated>");
+        if (truncated) {
+            xml.append("<NextContinuationToken>").append(last).append("</NextContinuationToken>");
+        }
+        xml.append("</ListBucketResult>");
+        respond(exchange, 200, xml.toString());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String xml) throws IOException {
+        if (xml == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        var bytes = xml.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * Reads a request body, decoding the {@code aws-chunked} encoding the SDK uses to sign or
+     * checksum streamed uploads over plain HTTP.
+     */
+    private static byte[] body(HttpExchange exchange) throws IOException {
+        var raw = exchange.getRequestBody().readAllBytes();
+        var sha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (sha == null || !sha.startsWith("STREAMING-")) {
+            return raw;
+        }
+        var decoded = new ByteArrayOutputStream(raw.length);
+        int position = 0;
+        while (position < raw.length) {
+            int lineEnd = indexOf(raw, position);
+            var header = new String(raw, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int size = Integer.parseInt(header.split(";", 2)[0].trim(), 16);
+            if (size == 0) {
+                break;
+            }
+            decoded.write(raw, lineEnd + 2, size);
+            position = lineEnd + 2 + size + 2;
+        }
+        return decoded.toByteArray();
+    }
+
+    private static int indexOf(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length - 1; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return bytes.length;
+    }
+
+    private static String etag(byte[] bytes) {
+        try {
+            return '"' + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(bytes)) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        var query = new HashMap<String, String>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (var pair : rawQuery.split("&")) {
+            var parts = pair.split("=", 2);
+            query.put(URLDecoder.decode(parts[0], StandardCharsets.UTF_8),
+                    parts.length > 1 ? URLDecoder.decode(parts[1], StandardCharsets.UTF_8) : "");
+        }
+        return query;
+    }
+}
@@ -0,0 +1,39 @@
+package com.george.gist;
+
+import java.util.Random;
+
+/**
+ * Generates markdown shaped like a real gist (headings, prose, lists and fenced code) for the benchmarks.
+ */
+public final class SampleGists {
+
+    private SampleGists() {
+    }
+
+    public static String markdown(int size, Random random) {
+        String[] words = { "gist", "stream", "render", "cache", "object", "bucket", "markdown", "request",
+                "the", "a", "of", "and", "to", "with", "for", "latency", "bytes", "format", "index", "page" };
+        var md = new StringBuilder(size + 256);
+        int section = 0;
+        while (md.length() < size) {
+            md.append("## Section ").append(++section).append("\n\n");
+            for (int p = 0; p < 2; p++) {
+                for (int w = 0; w < 60; w++) {
+                    md.append(words[random.nextInt(words.length)]).append(w % 12 == 11 ? ".\n" : " ");
+                }
+                md.append("\n\n");
+            }
+            for (int i = 0; i < 4; i++) {
+                md.append("- item ").append(words[random.nextInt(words.length)]).append(" *")
+                        .append(words[random.nextInt(words.length)]).append("*\n");
+            }
+            md.append("\n```java\n");
+            for (int i = 0; i < 8; i++) {
+                md.append("    var ").append(words[random.nextInt(words.length)]).append(i)
+                        .append(" = store.find(\"").append(random.nextInt(100_000)).append("\");\n");
+            }
+            md.append("```\n\n");
+        }
+        return md.toString();
+    }
+}
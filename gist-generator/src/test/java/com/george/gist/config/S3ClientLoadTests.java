@@ -0,0 +1,126 @@
+package com.george.gist.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.george.gist.InMemoryS3;
+import com.george.gist.model.Gist;
+import com.george.gist.store.S3GistStore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Drives the configured clients against {@link InMemoryS3} with more concurrent callers than
+ * pooled connections, and checks every call completes and is timed per operation.
+ */
+@SpringBootTest
+class S3ClientLoadTests {
+
+    private static final InMemoryS3 s3 = startS3();
+    private static final String BUCKET = "my-bucket";
+    private static final int GISTS = 200;
+
+    @Autowired
+    private S3GistStore s3GistStore;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void s3Properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.aws.s3-endpoint", () -> s3.endpoint().toString());
+        registry.add("spring.aws.http.max-connections", () -> 8);
+        registry.add("spring.aws.http.max-concurrency", () -> 8);
+    }
+
+    @AfterAll
+    static void stopS3() {
+        s3.close();
+    }
+
+    @Test
+    void timesEveryOperationUnderLoad() throws Exception {
+        try (var callers = Executors.newFixedThreadPool(32)) {
+            var saves = new ArrayList<CompletableFuture<Void>>();
+            for (int i = 0; i < GISTS; i++) {
+                var gist = new Gist("load" + i, "title", "md", "# gist " + i, "<h1>gist " + i + "</h1>\n", Instant.EPOCH);
+                saves.add(CompletableFuture.runAsync(() -> s3GistStore.save(gist), callers));
+            }
+            CompletableFuture.allOf(saves.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+            awaitStored();
+
+            var reads = new ArrayList<CompletableFuture<Void>>();
+            for (int i = 0; i < GISTS; i++) {
+                var key = "gists/load" + i + ".json";
+                reads.add(CompletableFuture.runAsync(() -> {
+                    try (var object = s3Client.getObject(request -> request.bucket(BUCKET).key(key))) {
+                        object.readAllBytes();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    s3Client.headObject(request -> request.bucket(BUCKET).key(key));
+                }, callers));
+            }
+            CompletableFuture.allOf(reads.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        }
+        assertThat(s3GistStore.streamIds(null).filter(id -> id.startsWith("load")).count()).isEqualTo(GISTS);
+
+        // A content blob and a metadata object per gist.
+        assertThat(requests("PutObject").count()).isGreaterThanOrEqualTo(2 * GISTS);
+        assertThat(requests("GetObject").count()).isGreaterThanOrEqualTo(GISTS);
+        assertThat(requests("HeadObject").count()).isEqualTo(GISTS);
+        assertThat(requests("ListObjectsV2").count()).isPositive();
+        // The bucket did not exist at startup, so it was created.
+        assertThat(requests("HeadBucket", "failure").count()).isPositive();
+        assertThat(requests("CreateBucket").count()).isPositive();
+        assertThat(requests("GetObject").takeSnapshot().percentileValues()).hasSize(3);
+        assertThat(meterRegistry.find("s3.connections.acquire").timers())
+                .extracting(timer -> timer.getId().getTag("client"))
+                .contains("Apache", "NettyNio");
+    }
+
+    private Timer requests(String operation) {
+        return requests(operation, "success");
+    }
+
+    private Timer requests(String operation, String outcome) {
+        return meterRegistry.get("s3.requests").tag("operation", operation).tag("outcome", outcome).timer();
+    }
+
+    private static void awaitStored() throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        for (int i = 0; i < GISTS; i++) {
+            while (s3.object(BUCKET, "gists/load" + i + ".json") == null && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static InMemoryS3 startS3() {
+        try {
+            return new InMemoryS3(Duration.ofMillis(2));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.george.gist.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import com.george.gist.InMemoryS3;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Sizes the S3 connection pools: for each pool size and HTTP client, {@code callers} concurrent
+ * callers make synchronous GetObject calls while the same number of PutObject calls run on the
+ * asynchronous client, against {@link InMemoryS3} answering every request after {@code latency-ms}.
+ * It reports throughput and the p50 and p99 of {@code s3.requests} and
+ * {@code s3.connections.acquire}, as published by {@link S3MetricPublisher}.
+ *
+ * <p>Run from the module directory with
+ * {@code java -cp target/test-classes:target/classes:<test classpath> com.george.gist.config.S3LoadBenchmark [callers] [latency-ms]}.
+ */
+public class S3LoadBenchmark {
+
+    private static final int[] POOL_SIZES = { 8, 32, 128 };
+    private static final int REQUESTS = 4000;
+    private static final String BUCKET = "bench";
+
+    public static void main(String[] args) throws Exception {
+        int callers = args.length > 0 ? Integer.parseInt(args[0]) : 128;
+        var latency = Duration.ofMillis(args.length > 1 ? Long.parseLong(args[1]) : 20);
+
+        try (var s3 = new InMemoryS3(latency)) {
+            System.out.printf("%-6s %-14s %5s %10s %10s %10s %12s %12s%n",
+                    "pool", "clients", "op", "req/s", "p50", "p99", "acquire p50", "acquire p99");
+            for (var clients : new S3HttpClientType[][] { { S3HttpClientType.APACHE, S3HttpClientType.NETTY },
+                    { S3HttpClientType.CRT, S3HttpClientType.CRT } }) {
+                for (int pool : POOL_SIZES) {
+                    run(s3, clients[0], clients[1], pool, callers);
+                }
+            }
+        }
+    }
+
+    private static void run(InMemoryS3 s3, S3HttpClientType syncClient, S3HttpClientType asyncClient, int pool,
+                            int callers) throws Exception {
+        var meterRegistry = new SimpleMeterRegistry();
+        try (var context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                    "spring.aws.access-key", "key",
+                    "spring.aws.secret-key", "secret",
+                    "spring.aws.region", "us-east-1",
+                    "spring.aws.s3-endpoint", s3.endpoint().toString(),
+                    "spring.aws.http.sync-client", syncClient.name(),
+                    "spring.aws.http.async-client", asyncClient.name(),
+                    "spring.aws.http.max-connections", pool,
+                    "spring.aws.http.max-concurrency", pool)));
+            context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+            context.registerBean(MeterRegistry.class, () -> meterRegistry);
+            context.register(S3Config.class, S3MetricPublisher.class);
+            context.refresh();
+
+            var s3Client = context.getBean(S3Client.class);
+            var s3AsyncClient = context.getBean(S3AsyncClient.class);
+            s3Client.createBucket(request -> request.bucket(BUCKET));
+            var object = new byte[4096];
+            s3Client.putObject(request -> request.bucket(BUCKET).key("object"), RequestBody.fromBytes(object));
+            meterRegistry.clear();
+
+            var clients = syncClient + "/" + asyncClient;
+            long gets = time(callers, () -> s3Client.getObjectAsBytes(request -> request.bucket(BUCKET).key("object")));
+            report(meterRegistry, pool, clients, "GetObject", gets);
+
+            var keys = new AtomicInteger();
+            long putNanos = time(callers, () -> s3AsyncClient.putObject(
+                    request -> request.bucket(BUCKET).key("put/" + keys.incrementAndGet()),
+                    AsyncRequestBody.fromBytes(object)).join());
+            report(meterRegistry, pool, clients, "PutObject", putNanos);
+        }
+    }
+
+    private static long time(int callers, Runnable call) throws Exception {
+        long start = System.nanoTime();
+        try (var executor = Executors.newFixedThreadPool(callers)) {
+            var calls = new ArrayList<CompletableFuture<Void>>(REQUESTS);
+            for (int i = 0; i < REQUESTS; i++) {
+                calls.add(CompletableFuture.runAsync(call, executor));
+            }
+            CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).get(10, TimeUnit.MINUTES);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(SimpleMeterRegistry meterRegistry, int pool, String clients, String operation,
+                               long nanos) {
+        var requests = meterRegistry.get("s3.requests").tag("operation", operation).timer();
+        var acquire = meterRegistry.find("s3.connections.acquire").timers().stream()
+                .map(Timer::takeSnapshot)
+                .findFirst();
+        System.out.printf("%-6d %-14s %5s %10.0f %8.1fms %8.1fms %10.1fms %10.1fms%n",
+                pool, clients, operation.substring(0, 3), REQUESTS / (nanos / 1e9),
+                millis(requests.takeSnapshot().percentileValues(), 0.5),
+                millis(requests.takeSnapshot().percentileValues(), 0.99),
+                acquire.map(snapshot -> millis(snapshot.percentileValues(), 0.5)).orElse(Double.NaN),
+                acquire.map(snapshot -> millis(snapshot.percentileValues(), 0.99)).orElse(Double.NaN));
+        meterRegistry.clear();
+    }
+
+    private static double millis(ValueAtPercentile[] percentiles, double percentile) {
+        for (var value : percentiles) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+}
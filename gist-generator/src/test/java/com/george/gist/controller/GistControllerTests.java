@@ -0,0 +1,118 @@
+package com.george.gist.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.InputStream;
+import java.time.Instant;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.george.gist.model.Gist;
+import com.george.gist.model.GistSummary;
+import com.george.gist.store.GistStore;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class GistControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private GistStore gistStore;
+
+    @Test
+    void rendersPageWithValidators() throws Exception {
+        when(gistStore.find("01page")).thenReturn(gist("01page"));
+
+        var etag = mockMvc.perform(get("/g/01page"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/html;charset=UTF-8"))
+                .andExpect(content().string(Matchers.containsString("<h1>Hello</h1>")))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=86400, public"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/g/01page").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=86400, public"));
+    }
+
+    @Test
+    void doesNotAnswerNotModifiedForMissingGists() throws Exception {
+        when(gistStore.find("01page")).thenReturn(gist("01page"));
+        var etag = mockMvc.perform(get("/g/01page")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThatThrownBy(() -> mockMvc.perform(get("/g/01gone")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag.replace("01page", "01gone"))))
+                .hasRootCauseInstanceOf(RuntimeException.class);
+        verify(gistStore).find("01gone");
+    }
+
+    @Test
+    void servesRepeatedRequestsFromThePageCache() throws Exception {
+        when(gistStore.find("01cached")).thenReturn(gist("01cached"));
+
+        var first = mockMvc.perform(get("/g/01cached")).andReturn().getResponse().getContentAsString();
+        mockMvc.perform(get("/g/01cached"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(first));
+
+        verify(gistStore, times(1)).find("01cached");
+    }
+
+    @Test
+    void createsBatchesInRequestOrder() throws Exception {
+        mockMvc.perform(post("/gists/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"title":"a","language":"md","markdown":"# one"},
+                                 {"title":"b","language":"md","markdown":"# two"}]"""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title").value("a"))
+                .andExpect(jsonPath("$[0].html").value("<h1>one</h1>\n"))
+                .andExpect(jsonPath("$[1].html").value("<h1>two</h1>\n"));
+
+        verify(gistStore, times(2)).save(any(Gist.class));
+    }
+
+    @Test
+    void streamsRawMarkdownBodies() throws Exception {
+        when(gistStore.saveStream(any(), eq("big"), eq("md"), any(), any(InputStream.class)))
+                .thenAnswer(invocation -> {
+                    InputStream markdown = invocation.getArgument(4);
+                    assertThat(markdown.readAllBytes()).asString().isEqualTo("# streamed");
+                    return new GistSummary(invocation.getArgument(0), "big", invocation.getArgument(3));
+                });
+
+        mockMvc.perform(post("/gists").param("title", "big").param("language", "md")
+                        .contentType("text/markdown")
+                        .content("# streamed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("big"))
+                .andExpect(jsonPath("$.markdown").doesNotExist());
+    }
+
+    private static Gist gist(String id) {
+        return new Gist(id, "title", "java", "# Hello", "<h1>Hello</h1>", Instant.EPOCH);
+    }
+}
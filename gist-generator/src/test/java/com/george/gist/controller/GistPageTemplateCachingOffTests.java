@@ -0,0 +1,47 @@
+package com.george.gist.controller;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.george.gist.model.Gist;
+import com.george.gist.store.GistStore;
+
+@SpringBootTest(properties = "spring.thymeleaf.cache=false")
+@AutoConfigureMockMvc
+class GistPageTemplateCachingOffTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private GistStore gistStore;
+
+    @Test
+    void rendersEveryRequestWithoutValidators() throws Exception {
+        when(gistStore.find("01dev")).thenReturn(new Gist("01dev", "title", "java", "# Hello", "<h1>Hello</h1>",
+                Instant.EPOCH));
+
+        mockMvc.perform(get("/g/01dev"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+        mockMvc.perform(get("/g/01dev").header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isOk());
+
+        verify(gistStore, times(2)).find("01dev");
+    }
+}
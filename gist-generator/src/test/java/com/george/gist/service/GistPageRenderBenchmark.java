@@ -0,0 +1,110 @@
+package com.george.gist.service;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import com.george.gist.SampleGists;
+import com.george.gist.model.Gist;
+
+/**
+ * Compares the ways {@code gist-template} can be rendered for large gists:
+ * <ul>
+ * <li>{@code uncached-string}: template re-read and re-parsed every time, page built as a String
+ * and encoded, the original {@code /g/{id}} path;</li>
+ * <li>{@code cached-string}: cached template, page still built as a String;</li>
+ * <li>{@code cached-stream}: cached template written through a UTF-8 writer to the output stream,
+ * what {@link GistPageRenderer} does on a page cache miss.</li>
+ * </ul>
+ * For each it reports the median time and heap allocated per render.
+ *
+ * <p>Run from the module directory with
+ * {@code java -cp target/test-classes:target/classes:<test classpath> com.george.gist.service.GistPageRenderBenchmark}.
+ */
+public class GistPageRenderBenchmark {
+
+    private static final int[] MARKDOWN_SIZES = { 16 * 1024, 256 * 1024, 1024 * 1024 };
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 100;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    interface Render {
+        void run(Context context) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var markdownService = new MarkdownService(0, 65536);
+        try {            var uncached = engine(false);
+            var cached = engine(true);
+
+            System.out.printf("%-16s %9s %9s %10s %12s%n", "mode", "markdown", "page", "median", "alloc/render");
+            for (int size : MARKDOWN_SIZES) {
+                var markdown = SampleGists.markdown(size, new Random(size));
+                var gist = new Gist("01jabcdefghjkmnpqrstvwxyz0", "A benchmark gist", "markdown", markdown,
+                        markdownService.toSafeHtml(markdown), Instant.now());
+                var context = new Context(Locale.getDefault());
+                context.setVariable("gist", gist);
+                int pageBytes = cached.process("gist-template", context).getBytes(StandardCharsets.UTF_8).length;
+
+                report("uncached-string", size, pageBytes, measure(context,
+                        c -> OutputStream.nullOutputStream().write(
+                                uncached.process("gist-template", c).getBytes(StandardCharsets.UTF_8))));
+                report("cached-string", size, pageBytes, measure(context,
+                        c -> OutputStream.nullOutputStream().write(
+                                cached.process("gist-template", c).getBytes(StandardCharsets.UTF_8))));
+                report("cached-stream", size, pageBytes, measure(context, c -> {
+                    var writer = new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8);
+                    cached.process("gist-template", c, writer);
+                    writer.flush();
+                }));
+            }
+        } finally {
+            markdownService.stop();
+        }
+    }
+
+    private static SpringTemplateEngine engine(boolean cacheable) {
+        var resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(cacheable);
+        var engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        return engine;
+    }
+
+    private static long[] measure(Context context, Render render) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            render.run(context);
+        }
+        long[] samples = new long[ITERATIONS];
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            render.run(context);
+            samples[i] = System.nanoTime() - start;
+        }
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        Arrays.sort(samples);
+        return new long[] { samples[ITERATIONS / 2], allocated / ITERATIONS };
+    }
+
+    private static void report(String mode, int markdownSize, int pageBytes, long[] result) {
+        System.out.printf("%-16s %9d %9d %8.2fms %9.1f KB%n",
+                mode, markdownSize, pageBytes, result[0] / 1e6, result[1] / 1024.0);
+    }
+}
@@ -0,0 +1,91 @@
+package com.george.gist.service;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.george.gist.SampleGists;
+import com.vladsch.flexmark.util.ast.Document;
+
+/**
+ * Splits the cost of {@link MarkdownService} into its stages for documents from 1 KB to 1 MB:
+ * <ul>
+ * <li>{@code parse}: flexmark parse to a document tree;</li>
+ * <li>{@code render}: rendering a parsed document to an HTML string;</li>
+ * <li>{@code sanitize}: the OWASP sanitizer over already rendered HTML;</li>
+ * <li>{@code wholeDocument}: the three stages in sequence, the original {@code toSafeHtml};</li>
+ * <li>{@code blockwise}: {@code toSafeHtml}, which renders and sanitizes one block at a time.</li>
+ * </ul>
+ *
+ * <p>Run after {@code ./mvnw test-compile} from the module directory, with the GC profiler for
+ * allocation per operation:
+ * {@code java -cp target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main MarkdownBenchmark -prof gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarkdownBenchmark {
+
+    @Param({ "1024", "16384", "262144", "1048576" })
+    public int size;
+
+    private MarkdownService markdownService;
+    private String markdown;
+    private Document document;
+    private String html;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        markdownService = new MarkdownService(1, 65536);
+        markdown = SampleGists.markdown(size, new Random(size));
+        document = markdownService.parse(markdown);
+        html = markdownService.render(document);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        markdownService.stop();
+    }
+
+    @Benchmark
+    public Document parse() {
+        return markdownService.parse(markdown);
+    }
+
+    @Benchmark
+    public String render() {
+        return markdownService.render(document);
+    }
+
+    @Benchmark
+    public String sanitize() {
+        return markdownService.sanitize(html);
+    }
+
+    @Benchmark
+    public void wholeDocument(Blackhole blackhole) {
+        blackhole.consume(markdownService.sanitize(markdownService.render(markdownService.parse(markdown))));
+    }
+
+    @Benchmark
+    public String blockwise() {
+        return markdownService.toSafeHtml(markdown);
+    }
+}
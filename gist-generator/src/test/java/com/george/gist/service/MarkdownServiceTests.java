@@ -0,0 +1,83 @@
+package com.george.gist.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.george.gist.SampleGists;
+
+class MarkdownServiceTests {
+
+    private final MarkdownService markdownService = new MarkdownService(2, 65536);
+
+    @AfterEach
+    void tearDown() {
+        markdownService.stop();
+    }
+
+    @Test
+    void blockwiseRenderingMatchesWholeDocumentSanitizing() {
+        var markdown = SampleGists.markdown(16 * 1024, new Random(1))
+                + "\n> quoted [link](https://example.com) and [bad](javascript:alert(1))\n\n"
+                + "<script>alert(1)</script>\n\n1. one\n2. **two**\n\n---\n:smile:\n";
+
+        var whole = markdownService.sanitize(markdownService.render(markdownService.parse(markdown)));
+
+        assertThat(markdownService.toSafeHtml(markdown)).isEqualTo(whole);
+    }
+
+    @Test
+    void streamedRenderingMatchesWholeDocument() throws IOException {
+        var markdown = SampleGists.markdown(64 * 1024, new Random(2)) + "\n1. one\n\n2. two\n\n> quote\n\n> more\n";
+        var html = new StringBuilder();
+
+        writeSafeHtml(1024, markdown, html);
+
+        assertThat(html.toString()).isEqualTo(markdownService.toSafeHtml(markdown));
+    }
+
+    @Test
+    void splitsOversizedCodeBlocksIntoCodeBlocks() throws IOException {
+        var code = new StringBuilder("```java\n");
+        for (int i = 0; i < 500; i++) {
+            code.append("var line").append(i).append(" = \"<b>").append(i).append("</b>\";\n");
+        }
+        var html = new StringBuilder();
+
+        writeSafeHtml(256, code.append("```\n\nafter\n").toString(), html);
+
+        assertThat(html.toString()).contains("var line0 ", "var line499 ", "<p>after</p>")
+                .doesNotContain("```", "<b>");
+        assertThat(html.toString().split("<pre><code", -1)).hasSizeGreaterThan(2);
+    }
+
+    @Test
+    void stripsDisallowedMarkup() {
+        var html = markdownService.toSafeHtml("<script>alert(1)</script>\n\n<img src=x onerror=alert(1)> [x](javascript:y)");
+
+        assertThat(html).doesNotContain("<script", "<img", "javascript:");
+    }
+
+    @Test
+    void rendersBatchesInOrder() {
+        var markdowns = List.of("# one", "# two", "# three", "# four");
+
+        assertThat(markdownService.toSafeHtml(markdowns))
+                .containsExactly("<h1>one</h1>\n", "<h1>two</h1>\n", "<h1>three</h1>\n", "<h1>four</h1>\n");
+    }
+
+    private static void writeSafeHtml(int chunkChars, String markdown, StringBuilder html) throws IOException {
+        var chunked = new MarkdownService(1, chunkChars);
+        try {
+            chunked.writeSafeHtml(new StringReader(markdown), html);
+        } finally {
+            chunked.stop();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.george.gist.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.george.gist.model.Gist;
+import com.george.gist.model.GistSummary;
+import com.george.gist.service.MarkdownService;
+import com.george.gist.service.RenderedHtmlCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class FileGistStoreTests {
+
+    private static final Instant CREATED = Instant.parse("2025-01-02T03:04:05.123456Z");
+
+    private final GistCodec codec = new GistCodec(GistFormat.ZSTD_JSON);
+    private final MarkdownService markdownService = new MarkdownService(1, 65536);
+    private final RenderedHtmlCache renderedHtml =
+            new RenderedHtmlCache(markdownService, new SimpleMeterRegistry(), 1 << 20);
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void tearDown() {
+        markdownService.stop();
+    }
+
+    @Test
+    void savesFindsAndLists() throws Exception {
+        var store = open(1 << 20);
+        store.save(gist("01a", "first"));
+        store.save(new Gist("01b", null, null, "# b", "<h1>b</h1>", CREATED));
+
+        assertThat(store.find("01a")).isEqualTo(gist("01a", "first"));
+        assertThat(store.find("01b").title()).isNull();
+        assertThat(store.find("01c")).isNull();
+        assertThat(store.list(null, 1).items()).extracting(GistSummary::id).containsExactly("01b");
+        assertThat(store.list("01b", 10).items()).extracting(GistSummary::id).containsExactly("01a");
+    }
+
+    @Test
+    void recoversGistsAcrossSegmentsOnReopen() throws Exception {
+        var store = open(64);
+        var large = new Gist("01b", "large", "md", "x".repeat(4096), "<p>" + "x".repeat(4096) + "</p>", CREATED);
+        store.save(gist("01a", "first"));
+        store.save(large);
+        store.save(gist("01c", "third"));
+        store.close();
+
+        try (var files = Files.list(directory)) {
+            assertThat(files.count()).isEqualTo(3);
+        }
+        var reopened = open(64);
+        assertThat(reopened.find("01a")).isEqualTo(gist("01a", "first"));
+        assertThat(reopened.find("01b")).isEqualTo(large);
+        assertThat(reopened.list(null, 10).items()).extracting(GistSummary::id).containsExactly("01c", "01b", "01a");
+
+        reopened.save(gist("01d", "fourth"));
+        assertThat(open(64).find("01d")).isEqualTo(gist("01d", "fourth"));
+    }
+
+    @Test
+    void skipsIncompleteRecords() throws Exception {
+        var store = open(1 << 20);
+        store.save(gist("01a", "first"));
+        store.save(gist("01b", "second"));
+        store.close();
+
+        try (var segment = FileChannel.open(directory.resolve("gists-000000.seg"), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            var length = ByteBuffer.allocate(Integer.BYTES);
+            segment.read(length, 0);
+            segment.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, -length.getInt(0)), 0);
+        }
+
+        var reopened = open(1 << 20);
+        assertThat(reopened.find("01a")).isNull();
+        assertThat(reopened.find("01b")).isEqualTo(gist("01b", "second"));
+    }
+
+    @Test
+    void streamsMarkdownIntoSegment() throws Exception {
+        var store = open(1 << 20);
+        var markdown = "# Streamed\n\n" + "Some *text* here.\n\n".repeat(1000);
+
+        var summary = store.saveStream("01s", "streamed", "md", CREATED,
+                new ByteArrayInputStream(markdown.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(summary).isEqualTo(new GistSummary("01s", "streamed", CREATED));
+        assertThat(open(1 << 20).find("01s")).isEqualTo(
+                new Gist("01s", "streamed", "md", markdown, renderedHtml.toSafeHtml(markdown), CREATED));
+    }
+
+    private FileGistStore open(int segmentBytes) throws Exception {
+        var store = new FileGistStore(codec, renderedHtml, directory, segmentBytes, false);
+        store.open();
+        return store;
+    }
+
+    private static Gist gist(String id, String title) {
+        return new Gist(id, title, "md", "# " + title, "<h1>" + title + "</h1>", CREATED);
+    }
+}
@@ -0,0 +1,62 @@
+package com.george.gist.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.george.gist.model.Gist;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GistCacheTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final GistCache cache = new GistCache(registry, 1 << 20, 100, Duration.ofMinutes(1));
+
+    @Test
+    void loadsEachGistOnce() {
+        var loads = new AtomicInteger();
+        var gist = gist("a");
+
+        assertThat(cache.get("a", id -> { loads.incrementAndGet(); return gist; })).isEqualTo(gist);
+        assertThat(cache.get("a", id -> { loads.incrementAndGet(); return gist; })).isEqualTo(gist);
+
+        assertThat(loads).hasValue(1);
+        assertThat(registry.get("cache.gets").tag("cache", "gists").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void remembersMissingIdsUntilTheGistIsSaved() {
+        var loads = new AtomicInteger();
+
+        assertThat(cache.get("a", id -> { loads.incrementAndGet(); return null; })).isNull();
+        assertThat(cache.get("a", id -> { loads.incrementAndGet(); return null; })).isNull();
+        assertThat(loads).hasValue(1);
+
+        var gist = gist("a");
+        cache.put(gist);
+        assertThat(cache.get("a", id -> null)).isEqualTo(gist);
+    }
+
+    @Test
+    void invalidatedGistIsMissingAndListenersAreTold() {
+        var invalidated = new ArrayList<String>();
+        cache.onInvalidate(invalidated::add);
+        cache.put(gist("a"));
+
+        cache.invalidate("a");
+
+        assertThat(cache.get("a", id -> gist("a"))).isNull();
+        assertThat(invalidated).containsExactly("a");
+    }
+
+    private static Gist gist(String id) {
+        return new Gist(id, "title", "java", "# hi", "<h1>hi</h1>", Instant.EPOCH);
+    }
+}
@@ -0,0 +1,79 @@
+package com.george.gist.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.george.gist.SampleGists;
+import com.george.gist.service.MarkdownService;
+
+/**
+ * Compares the storage formats on generated gist content blobs of realistic shape (headings, prose, lists and
+ * fenced code) and several sizes. For each format, with and without the rendered HTML stored, it
+ * reports the stored object size, median encode and decode time, and the time to move the object
+ * at the given bandwidth. Decode time for markdown-only storage includes rendering the HTML.
+ *
+ * <p>Transfer time is modelled as size divided by bandwidth; it does not include S3 request latency,
+ * which is the same for every format.
+ *
+ * <p>Run from the module directory with
+ * {@code java -cp target/test-classes:target/classes:<test classpath> com.george.gist.store.GistCodecBenchmark [bandwidth-mbit]}.
+ */
+public class GistCodecBenchmark {
+
+    private static final int[] MARKDOWN_SIZES = { 1024, 16 * 1024, 128 * 1024 };
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 500;
+
+    public static void main(String[] args) throws IOException {
+        double bandwidthMbit = args.length > 0 ? Double.parseDouble(args[0]) : 100;
+        var markdownService = new MarkdownService(0, 65536);
+        try {
+            System.out.printf("%-10s %-6s %9s %10s %10s %10s %12s%n",
+                    "format", "html", "markdown", "stored", "encode", "decode", "transfer");
+            for (int size : MARKDOWN_SIZES) {
+                var markdown = SampleGists.markdown(size, new Random(size));
+                var html = markdownService.toSafeHtml(markdown);
+                for (var storeHtml : new boolean[] { true, false }) {
+                    var content = new GistContent(markdown, storeHtml ? html : null);
+                    for (var format : GistFormat.values()) {
+                        var codec = new GistCodec(format);
+                        var bytes = codec.encode(content);
+                        long encode = median(() -> codec.encode(content));
+                        long decode = median(() -> {
+                            var decoded = codec.decode(new ByteArrayInputStream(bytes), GistContent.class);
+                            if (decoded.html() == null) {
+                                markdownService.toSafeHtml(decoded.markdown());
+                            }
+                        });
+                        double transferMillis = bytes.length * 8 / (bandwidthMbit * 1_000_000) * 1000;
+                        System.out.printf("%-10s %-6s %9d %10d %8.1fus %8.1fus %10.3fms%n",
+                                format, storeHtml ? "yes" : "no", markdown.length(), bytes.length,
+                                encode / 1e3, decode / 1e3, transferMillis);
+                    }
+                }
+            }
+        } finally {
+            markdownService.stop();
+        }
+    }
+
+    interface Operation {
+        void run() throws IOException;
+    }
+
+    private static long median(Operation operation) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[ITERATIONS / 2];
+    }
+}
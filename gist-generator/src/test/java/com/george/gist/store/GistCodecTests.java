@@ -0,0 +1,51 @@
+package com.george.gist.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.george.gist.model.Gist;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+class GistCodecTests {
+
+    private final StoredGist gist = new StoredGist("01abc", "title", "java", Instant.parse("2025-01-02T03:04:05.123456Z"),
+            null, "# Hello", "<h1>Hello</h1>\n");
+
+    @ParameterizedTest
+    @EnumSource(GistFormat.class)
+    void roundTrips(GistFormat format) throws IOException {
+        var codec = new GistCodec(format);
+
+        var bytes = codec.encode(gist);
+
+        assertThat(codec.decode(new ByteArrayInputStream(bytes), StoredGist.class)).isEqualTo(gist);
+    }
+
+    @ParameterizedTest
+    @EnumSource(GistFormat.class)
+    void readsEveryFormatWhateverIsConfigured(GistFormat format) throws IOException {
+        var bytes = new GistCodec(format).encode(gist);
+
+        var reader = new GistCodec(GistFormat.SMILE);
+
+        assertThat(reader.decode(new ByteArrayInputStream(bytes), StoredGist.class)).isEqualTo(gist);
+    }
+
+    @Test
+    void readsJsonWrittenBeforeTheHeader() throws IOException {
+        var legacy = new ObjectMapper().registerModule(new JavaTimeModule()).writeValueAsBytes(
+                new Gist(gist.id(), gist.title(), gist.language(), gist.markdown(), gist.html(), gist.createdAt()));
+
+        var codec = new GistCodec(GistFormat.ZSTD_JSON);
+
+        assertThat(codec.decode(new ByteArrayInputStream(legacy), StoredGist.class)).isEqualTo(gist);
+    }
+}
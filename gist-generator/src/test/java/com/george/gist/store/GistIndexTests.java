@@ -0,0 +1,99 @@
+package com.george.gist.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.george.gist.model.GistSummary;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+class GistIndexTests {
+
+    private final S3Client s3Client = mock(S3Client.class);
+
+    @Test
+    void pagesNewestFirstWithCursor() {
+        var index = index();
+        for (var id : new String[] { "01a", "01b", "01c", "01d", "01e" }) {
+            index.add(new GistSummary(id, "title " + id, Instant.EPOCH));
+        }
+
+        var first = index.page(null, 2);
+        assertThat(first.items()).extracting(GistSummary::id).containsExactly("01e", "01d");
+        assertThat(first.nextCursor()).isEqualTo("01d");
+
+        var second = index.page(first.nextCursor(), 2);
+        assertThat(second.items()).extracting(GistSummary::id).containsExactly("01c", "01b");
+
+        var last = index.page(second.nextCursor(), 2);
+        assertThat(last.items()).extracting(GistSummary::id).containsExactly("01a");
+        assertThat(last.nextCursor()).isNull();
+    }
+
+    @Test
+    void snapshotRoundTrips() throws Exception {
+        var index = index();
+        var created = Instant.parse("2025-01-02T03:04:05.123456Z");
+        index.add(new GistSummary("01a", "first", created));
+        index.add(new GistSummary("01b", null, created));
+        index.markLoaded();
+        index.flush();
+
+        var body = ArgumentCaptor.forClass(RequestBody.class);
+        verify(s3Client).putObject(any(PutObjectRequest.class), body.capture());
+        var bytes = body.getValue().contentStreamProvider().newStream().readAllBytes();
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenReturn(new ResponseInputStream<>(
+                GetObjectResponse.builder().build(), AbortableInputStream.create(new ByteArrayInputStream(bytes))));
+
+        var loaded = index();
+        assertThat(loaded.load()).isEqualTo("01b");
+        assertThat(loaded.page(null, 10).items()).containsExactly(
+                new GistSummary("01b", null, created),
+                new GistSummary("01a", "first", created));
+    }
+
+    @Test
+    void doesNotFlushBeforeLoaded() throws Exception {
+        var index = index();
+        index.add(new GistSummary("01a", "first", Instant.EPOCH));
+
+        index.flush();
+
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    }
+
+    @Test
+    void loadsNothingWithoutSnapshot() throws Exception {
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenThrow(NoSuchKeyException.builder().build());
+
+        var index = index();
+
+        assertThat(index.load()).isNull();
+        assertThat(index.page(null, 10).items()).isEmpty();
+    }
+
+    private GistIndex index() {
+        var index = new GistIndex(s3Client, "index/gists.idx", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(index, "bucketName", "bucket");
+        return index;
+    }
+}
@@ -0,0 +1,412 @@
+package com.george.gist.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.george.gist.SampleGists;
+import com.george.gist.model.Gist;
+import com.george.gist.model.GistSummary;
+import com.george.gist.service.MarkdownService;
+import com.george.gist.service.RenderedHtmlCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+
+class S3GistStoreTests {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final S3Client s3Client = mock(S3Client.class);
+    private final S3AsyncClient s3AsyncClient = mock(S3AsyncClient.class);
+    private final GistCache gistCache = new GistCache(new SimpleMeterRegistry(), 1 << 20, 100, Duration.ofMinutes(1));
+    private final GistIndex gistIndex = new GistIndex(s3Client, "index/gists.idx", Duration.ofMinutes(1));
+    private final GistCodec codec = new GistCodec(GistFormat.ZSTD_JSON);
+    private final MarkdownService markdownService = new MarkdownService(1, 65536);
+    private final RenderedHtmlCache renderedHtml =
+            new RenderedHtmlCache(markdownService, new SimpleMeterRegistry(), 1 << 20);
+    private S3GistStore store;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (store != null) {
+            store.stop();
+        }
+        markdownService.stop();
+    }
+
+    @Test
+    void unflushedGistIsReadableAndListed() {
+        var upload = new CompletableFuture<PutObjectResponse>();
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenReturn(upload);
+        store = start(8);
+
+        var gist = gist("first");
+        store.save(gist);
+
+        assertThat(store.find("first")).isEqualTo(gist);
+        assertThat(store.list(null, 10).items()).extracting(GistSummary::id).containsExactly("first");
+        verify(s3AsyncClient, timeout(1000)).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+
+        upload.complete(PutObjectResponse.builder().build());
+        assertThat(store.list(null, 10).items()).extracting(GistSummary::id).containsExactly("first");
+    }
+
+    @Test
+    void keepsRetryingWritesUntilS3Recovers() throws InterruptedException {
+        long recoverAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+        var written = new CopyOnWriteArrayList<String>();
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenAnswer(invocation -> {
+            if (System.nanoTime() < recoverAt) {
+                return CompletableFuture.failedFuture(new IOException("S3 is down"));
+            }
+            PutObjectRequest request = invocation.getArgument(0);
+            written.add(request.key());
+            return CompletableFuture.completedFuture(PutObjectResponse.builder().build());
+        });
+        store = start(8);
+
+        var gist = gist("kept");
+        store.save(gist);
+        Thread.sleep(150);
+        assertThat(store.find("kept")).isEqualTo(gist);
+        assertThat(store.list(null, 10).items()).extracting(GistSummary::id).containsExactly("kept");
+
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!written.contains("gists/kept.json") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(written).contains("gists/kept.json");
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(store, "unflushed")).isEmpty();
+        assertThat(store.find("kept")).isEqualTo(gist);
+        verify(s3AsyncClient, atLeast(3)).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+    }
+
+    @Test
+    void indexesStoredGistsAtStartup() throws InterruptedException {
+        var stored = gist("older");
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            if (!request.key().equals("gists/older.json")) {
+                throw NoSuchKeyException.builder().build();
+            }
+            return new ResponseInputStream<>(GetObjectResponse.builder().build(),
+                    AbortableInputStream.create(new ByteArrayInputStream(mapper.writeValueAsBytes(stored))));
+        });
+        when(s3Client.listObjectsV2Paginator(any(ListObjectsV2Request.class)))
+                .thenAnswer(invocation -> new ListObjectsV2Iterable(s3Client, invocation.getArgument(0)));
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(ListObjectsV2Response.builder()
+                .contents(S3Object.builder().key("gists/older.json").build())
+                .isTruncated(false)
+                .build());
+
+        store = start(8);
+
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (store.list(null, 10).items().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(store.list(null, 10).items()).containsExactly(GistSummary.of(stored));
+    }
+
+    @Test
+    void indexesFromMetadataAndSkipsUnreadableGists() throws InterruptedException {
+        var hash = ContentHash.of("# big");
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            return switch (request.key()) {
+                case "gists/good.json" -> object(new StoredGist("good", "title", "md", Instant.EPOCH, hash, null, null));
+                case "gists/broken.json" -> throw S3Exception.builder().message("Internal error").statusCode(500).build();
+                default -> throw NoSuchKeyException.builder().build();
+            };
+        });
+        when(s3Client.listObjectsV2Paginator(any(ListObjectsV2Request.class)))
+                .thenAnswer(invocation -> new ListObjectsV2Iterable(s3Client, invocation.getArgument(0)));
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(ListObjectsV2Response.builder()
+                .contents(S3Object.builder().key("gists/broken.json").build(),
+                        S3Object.builder().key("gists/good.json").build())
+                .isTruncated(false)
+                .build());
+
+        store = start(8);
+
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (store.list(null, 10).items().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(store.list(null, 10).items()).containsExactly(new GistSummary("good", "title", Instant.EPOCH));
+        var reads = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(s3Client, atLeastOnce()).getObject(reads.capture());
+        assertThat(reads.getAllValues()).extracting(GetObjectRequest::key).noneMatch(key -> key.startsWith("blobs/"));
+    }
+
+    @Test
+    void rebuildsIndexWhenSnapshotCannotBeRead() throws Exception {
+        var snapshots = new CopyOnWriteArrayList<byte[]>();
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            return switch (request.key()) {
+                case "index/gists.idx" -> snapshots.isEmpty()
+                        ? stream(new byte[] { 0x1f, (byte) 0x8b, 8, 0 })
+                        : stream(snapshots.get(snapshots.size() - 1));
+                case "gists/01a.json" -> object(new StoredGist("01a", "a", "md", Instant.EPOCH, "h", null, null));
+                case "gists/01b.json" -> object(new StoredGist("01b", "b", "md", Instant.EPOCH, "h", null, null));
+                default -> throw NoSuchKeyException.builder().build();
+            };
+        });
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+            RequestBody body = invocation.getArgument(1);
+            snapshots.add(body.contentStreamProvider().newStream().readAllBytes());
+            return PutObjectResponse.builder().build();
+        });
+        when(s3Client.listObjectsV2Paginator(any(ListObjectsV2Request.class)))
+                .thenAnswer(invocation -> new ListObjectsV2Iterable(s3Client, invocation.getArgument(0)));
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenAnswer(invocation -> {
+            ListObjectsV2Request request = invocation.getArgument(0);
+            var listing = ListObjectsV2Response.builder().isTruncated(false);
+            if (request.startAfter() == null) {
+                listing.contents(S3Object.builder().key("gists/01a.json").build(),
+                        S3Object.builder().key("gists/01b.json").build());
+            }
+            return listing.build();
+        });
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+
+        // Not loaded yet: flushing must not replace the stored snapshot.
+        gistIndex.add(GistSummary.of(gist("01c")));
+        gistIndex.flush();
+        assertThat(snapshots).isEmpty();
+
+        store = start(8);
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (store.list(null, 10).items().size() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        store.save(gist("01d"));
+        gistIndex.flush();
+
+        var reloaded = new GistIndex(s3Client, "index/gists.idx", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(reloaded, "bucketName", "bucket");
+        assertThat(reloaded.load()).isEqualTo("01d");
+        assertThat(reloaded.page(null, 10).items()).extracting(GistSummary::id)
+                .containsExactly("01d", "01c", "01b", "01a");
+    }
+
+    @Test
+    void checksBucketOnceAtStartup() {
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        store = start(8);
+
+        store.save(gist("a"));
+        store.save(gist("b"));
+
+        // A content blob and a metadata object for each.
+        verify(s3AsyncClient, timeout(1000).times(4)).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+        verify(s3Client, times(1)).headBucket(any(HeadBucketRequest.class));
+    }
+
+    @Test
+    void storesRepeatedMarkdownOnce() {
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        store = start(8);
+
+        store.save(gist("a", "same snippet"));
+        verify(s3AsyncClient, timeout(1000).times(2)).putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class));
+        store.save(gist("b", "same snippet"));
+
+        var requests = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3AsyncClient, timeout(1000).times(3)).putObject(requests.capture(), any(AsyncRequestBody.class));
+        assertThat(requests.getAllValues()).extracting(PutObjectRequest::key).containsExactly(
+                "blobs/" + ContentHash.of("same snippet"), "gists/a.json", "gists/b.json");
+    }
+
+    @Test
+    void readsMetadataAndRendersMarkdownOnlyBlobs() throws IOException {
+        var hash = ContentHash.of("# stored");
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            return switch (request.key()) {
+                case "gists/meta.json" -> object(new StoredGist("meta", "title", "md", Instant.EPOCH, hash, null, null));
+                default -> {
+                    if (request.key().equals("blobs/" + hash)) {
+                        yield object(new GistContent("# stored", null));
+                    }
+                    throw NoSuchKeyException.builder().build();
+                }
+            };
+        });
+        store = start(8, false);
+
+        assertThat(store.find("meta"))
+                .isEqualTo(new Gist("meta", "title", "md", "# stored", "<h1>stored</h1>\n", Instant.EPOCH));
+    }
+
+    @Test
+    void streamsLargeGistsInParts() throws IOException {
+        var markdown = SampleGists.markdown(64 * 1024, new Random(1));
+        var parts = new ConcurrentSkipListMap<Integer, byte[]>();
+        when(s3AsyncClient.createMultipartUpload(any(CreateMultipartUploadRequest.class))).thenReturn(
+                CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("upload").build()));
+        when(s3AsyncClient.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            parts.put(request.partNumber(), bytes(invocation.getArgument(1)));
+            return CompletableFuture.completedFuture(UploadPartResponse.builder().eTag("e" + request.partNumber()).build());
+        });
+        when(s3AsyncClient.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build()));
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        store = start(8);
+
+        var summary = store.saveStream("big", "title", "md", Instant.EPOCH,
+                new ByteArrayInputStream(markdown.getBytes(StandardCharsets.UTF_8)));
+
+        var complete = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3AsyncClient).completeMultipartUpload(complete.capture());
+        assertThat(complete.getValue().key()).isEqualTo("blobs/" + ContentHash.of(markdown));
+        assertThat(complete.getValue().multipartUpload().parts()).extracting(CompletedPart::partNumber)
+                .containsExactlyElementsOf(parts.keySet())
+                .hasSizeGreaterThan(1);
+
+        var blob = new ByteArrayOutputStream();
+        for (var part : parts.values()) {
+            blob.write(part);
+        }
+        assertThat(codec.decode(new ByteArrayInputStream(blob.toByteArray()), GistContent.class))
+                .isEqualTo(new GistContent(markdown, markdownService.toSafeHtml(markdown)));
+        var metadata = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3AsyncClient).putObject(metadata.capture(), any(AsyncRequestBody.class));
+        assertThat(metadata.getValue().key()).isEqualTo("gists/big.json");
+        assertThat(store.list(null, 10).items()).containsExactly(summary);
+    }
+
+    @Test
+    void rejectsSavesWhenQueueIsFull() {
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenThrow(NoSuchKeyException.builder().build());
+        // The writer is never started, so nothing leaves the queue.
+        store = new S3GistStore(s3Client, s3AsyncClient, gistCache, gistIndex, codec, renderedHtml, true, 100,
+                1, 1, 10, 20, 200);
+        ReflectionTestUtils.setField(store, "bucketName", "bucket");
+
+        store.save(gist("a"));
+
+        assertThatThrownBy(() -> store.save(gist("b"))).hasMessageContaining("queue is full");
+        assertThat(store.find("b")).isNull();
+    }
+
+    private S3GistStore start(int queueCapacity) {
+        return start(queueCapacity, true);
+    }
+
+    private S3GistStore start(int queueCapacity, boolean storeHtml) {
+        var started = new S3GistStore(s3Client, s3AsyncClient, gistCache, gistIndex, codec, renderedHtml, storeHtml, 100,
+                queueCapacity, 4, 100, 20, 200);
+        ReflectionTestUtils.setField(started, "bucketName", "bucket");
+        ReflectionTestUtils.setField(started, "partSize", 1024);
+        ReflectionTestUtils.setField(started, "partsInFlight", 2);
+        started.start();
+        return started;
+    }
+
+    private static Gist gist(String id) {
+        return new Gist(id, "title", "java", "# " + id, "<h1>" + id + "</h1>\n", Instant.EPOCH);
+    }
+
+    private Gist gist(String id, String markdown) {
+        return new Gist(id, "title", "java", markdown, markdownService.toSafeHtml(markdown), Instant.EPOCH);
+    }
+
+    private static byte[] bytes(AsyncRequestBody body) {
+        var bytes = new ByteArrayOutputStream();
+        body.subscribe(new Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer buffer) {
+                var chunk = new byte[buffer.remaining()];
+                buffer.get(chunk);
+                bytes.writeBytes(chunk);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                throw new AssertionError(error);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return bytes.toByteArray();
+    }
+
+    private ResponseInputStream<GetObjectResponse> object(Object value) throws IOException {
+        return stream(codec.encode(value));
+    }
+
+    private static ResponseInputStream<GetObjectResponse> stream(byte[] bytes) {
+        return new ResponseInputStream<>(GetObjectResponse.builder().build(),
+                AbortableInputStream.create(new ByteArrayInputStream(bytes)));
+    }
+}
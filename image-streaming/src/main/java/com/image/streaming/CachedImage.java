@@ -0,0 +1,37 @@
+package com.image.streaming;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An image file held in memory as fixed-size chunks, together with the file attributes it was
+ * read with so {@link ImageCache} can tell when the file on disk has changed.
+ */
+public record CachedImage(long length, long lastModified, int chunkSize, byte[][] chunks) {
+
+    @FunctionalInterface
+    public interface ChunkCallback {
+        void afterChunk() throws IOException;
+    }
+
+    public boolean isCurrent(long fileLength, long fileLastModified) {
+        return length == fileLength && lastModified == fileLastModified;
+    }
+
+    /**
+     * Writes {@code count} bytes starting at {@code start}, one chunk (or partial chunk at the edges
+     * of the range) at a time, invoking {@code callback} after each write.
+     */
+    public void writeTo(OutputStream out, long start, long count, ChunkCallback callback) throws IOException {
+        long position = start;
+        long end = start + count;
+        while (position < end) {
+            byte[] chunk = chunks[(int) (position / chunkSize)];
+            int offset = (int) (position % chunkSize);
+            int len = (int) Math.min(chunk.length - offset, end - position);
+            out.write(chunk, offset, len);
+            position += len;
+            callback.afterChunk();
+        }
+    }
+}
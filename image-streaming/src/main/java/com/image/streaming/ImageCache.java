@@ -0,0 +1,92 @@
+package com.image.streaming;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Keeps hot images in memory as pre-chunked byte arrays so repeated requests for the same file
+ * skip disk reads. The cache is capped by total bytes and uses Caffeine's W-TinyLFU eviction,
+ * which keeps a few popular images resident under bursty traffic. Entries are reloaded when the
+ * file's size or modification time changes.
+ *
+ * <p>Hit, miss and eviction counts are published as the {@code cache.*} meters tagged
+ * {@code cache=images}.
+ */
+@Component
+public class ImageCache {
+
+    private final Cache<String, CachedImage> cache;
+    private final boolean enabled;
+    private final long maxEntryBytes;
+    private final int chunkSize;
+
+    public ImageCache(MeterRegistry meterRegistry,
+                      @Value("${image.streaming.cache.enabled:true}") boolean enabled,
+                      @Value("${image.streaming.cache.max-bytes:67108864}") long maxBytes,
+                      @Value("${image.streaming.cache.max-entry-bytes:8388608}") long maxEntryBytes,
+                      @Value("${image.streaming.progressive.chunk-size:4096}") int chunkSize) {
+        this.enabled = enabled;
+        this.maxEntryBytes = maxEntryBytes;
+        this.chunkSize = chunkSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String path, CachedImage image) -> (int) Math.min(image.length(), Integer.MAX_VALUE))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "images");
+    }
+
+    /**
+     * Returns the cached content of {@code imageFile}, loading it on a miss, or {@code null} when
+     * caching is disabled or the file is too large to cache.
+     */
+    public CachedImage get(File imageFile) throws IOException {
+        long length = imageFile.length();
+        if (!enabled || length > maxEntryBytes) {
+            return null;
+        }
+
+        long lastModified = imageFile.lastModified();
+        String key = imageFile.getPath();
+        // The map view does not record stats, so only the lookup below counts as a hit or miss.
+        CachedImage cached = cache.asMap().get(key);
+        if (cached != null && !cached.isCurrent(length, lastModified)) {
+            cache.asMap().remove(key, cached);
+        }
+
+        try {
+            return cache.get(key, k -> load(imageFile, length, lastModified));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private CachedImage load(File imageFile, long length, long lastModified) {
+        int chunkCount = (int) ((length + chunkSize - 1) / chunkSize);
+        byte[][] chunks = new byte[chunkCount][];
+        try (InputStream in = Files.newInputStream(imageFile.toPath())) {
+            for (int i = 0; i < chunkCount; i++) {
+                int expected = (int) Math.min(chunkSize, length - (long) i * chunkSize);
+                chunks[i] = in.readNBytes(expected);
+                if (chunks[i].length != expected) {
+                    throw new IOException("Image " + imageFile + " changed while it was being cached");
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return new CachedImage(length, lastModified, chunkSize, chunks);
+    }
+}
@@ -4,45 +4,329 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 @RestController()
 public class ImageController {
 
-    private static final String IMAGE_ROOT = "src/main/resources/images";
+    // Tomcat request attributes used to hand a file over to the connector's sendfile support.
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
+    private final ImageCache imageCache;
+    private final ImageVariants imageVariants;
+    private final String imageRoot;
+    private final StreamingMode mode;
+    private final int chunkSize;
+    private final long chunkDelayMillis;
+    private final int maxDimension;
+
+    public ImageController(ImageCache imageCache,
+                           ImageVariants imageVariants,
+                           @Value("${image.streaming.root:src/main/resources/images}") String imageRoot,
+                           @Value("${image.streaming.mode:ZERO_COPY}") StreamingMode mode,
+                           @Value("${image.streaming.progressive.chunk-size:4096}") int chunkSize,
+                           @Value("${image.streaming.progressive.chunk-delay-ms:50}") long chunkDelayMillis,
+                           @Value("${image.streaming.variants.max-dimension:4096}") int maxDimension) {
+        this.imageCache = imageCache;
+        this.imageVariants = imageVariants;
+        this.imageRoot = imageRoot;
+        this.mode = mode;
+        this.chunkSize = chunkSize;
+        this.chunkDelayMillis = chunkDelayMillis;
+        this.maxDimension = maxDimension;
+    }
+
+    /**
+     * Returns {@code null} when the response has already been written (or handed to sendfile), and a
+     * {@link StreamingResponseBody} in progressive mode so the paced writes run on the MVC async
+     * executor instead of holding the Tomcat request thread.
+     *
+     * <p>Progressive mode serves a progressively re-encoded variant of the image by default; the
+     * {@code progressive} parameter selects the original or the re-encoded bytes explicitly.
+     */
     @GetMapping("/api/image/stream/{filename}")
-    public void streamImage(HttpServletResponse response,
-                            @PathVariable("filename") String filename) throws IOException, InterruptedException {
+    public StreamingResponseBody streamImage(HttpServletRequest request, HttpServletResponse response,
+                                             @PathVariable("filename") String filename,
+                                             @RequestParam(name = "progressive", required = false) Boolean progressive)
+            throws IOException {
+
+        File sourceFile = new File(imageRoot + "/" + filename);
+        if (!sourceFile.exists() || !sourceFile.isFile()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return null;
+        }
+
+        ImageVariant variant = imageVariants.resolve(sourceFile,
+                progressive != null ? progressive : mode == StreamingMode.PROGRESSIVE);
+        return serve(variant, request, response);
+    }
 
-        File imageFile = new File(IMAGE_ROOT + "/" + filename);
-        if (!imageFile.exists() || !imageFile.isFile()) {
+    /**
+     * Serves a resized and/or re-encoded variant of an image, e.g. a thumbnail for a list view.
+     * Without parameters the original is served. Variants are computed once and then served like
+     * any other file, with validators, ranges and sendfile.
+     */
+    @GetMapping("/api/image/{filename}")
+    public StreamingResponseBody image(HttpServletRequest request, HttpServletResponse response,
+                                       @PathVariable("filename") String filename,
+                                       @RequestParam(name = "w", required = false) Integer width,
+                                       @RequestParam(name = "h", required = false) Integer height,
+                                       @RequestParam(name = "fmt", required = false) String format)
+            throws IOException {
+
+        File sourceFile = new File(imageRoot + "/" + filename);
+        if (!sourceFile.exists() || !sourceFile.isFile()) {
             response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return null;
+        }
+
+        String normalizedFormat = format == null ? null : format.toLowerCase(Locale.ROOT);
+        if ("jpg".equals(normalizedFormat)) {
+            normalizedFormat = "jpeg";
+        }
+        if (!isValidDimension(width) || !isValidDimension(height)
+                || (normalizedFormat != null && !ImageVariants.isSupportedFormat(normalizedFormat))) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return null;
+        }
+
+        ImageVariant variant = width == null && height == null && normalizedFormat == null
+                ? imageVariants.resolve(sourceFile, false)
+                : imageVariants.resize(sourceFile, width, height, normalizedFormat);
+        return serve(variant, request, response);
+    }
+
+    /**
+     * The variant worker pool is saturated: ask the client to come back instead of queueing more work.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Void> variantPoolSaturated() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
+    private boolean isValidDimension(Integer dimension) {
+        return dimension == null || (dimension > 0 && dimension <= maxDimension);
+    }
+
+    private StreamingResponseBody serve(ImageVariant variant, HttpServletRequest request,
+                                        HttpServletResponse response) throws IOException {
+        File imageFile = variant.file();
+        String contentType = variant.contentType();
+
+        long length = imageFile.length();
+        long lastModified = imageFile.lastModified();
+        String etag = etag(length, lastModified);
+
+        // Sets ETag/Last-Modified and answers 304 (or 412 for If-Match) when the client copy is current.
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return null;
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        List<HttpRange> ranges;
+        try {
+            ranges = requestedRanges(request, etag, lastModified, length);
+        } catch (IllegalArgumentException ex) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return null;
+        }
+
+        if (ranges.isEmpty()) {
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            return writeRegion(imageFile, 0, length, request, response);
+        } else if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(start, end, length));
+            response.setContentLengthLong(end - start + 1);
+            return writeRegion(imageFile, start, end - start + 1, request, response);
+        } else {
+            writeMultipartRanges(imageFile, contentType, ranges, length, response);
+            return null;
+        }
+    }
+
+    /**
+     * Parses the {@code Range} header, honouring {@code If-Range}. Returns an empty list when the
+     * whole file should be sent, including when the header cannot be parsed (RFC 9110 section 14.2),
+     * and throws {@link IllegalArgumentException} when well-formed ranges cannot be satisfied.
+     */
+    private List<HttpRange> requestedRanges(HttpServletRequest request, String etag, long lastModified,
+                                            long length) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !ifRangeMatches(request, etag, lastModified)) {
+            return List.of();
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException ex) {
+            // Malformed, or in a unit other than bytes: ignore the header.
+            return List.of();
+        }
+        long total = 0;
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            if (start >= length || start > end) {
+                throw new IllegalArgumentException("Range " + range + " is outside the content");
+            }
+            total += end - start + 1;
+        }
+        if (total > length) {
+            // Same guard as Spring's resource handling: overlapping ranges must not amplify the response.
+            throw new IllegalArgumentException("Requested ranges exceed the content length");
+        }
+        return ranges;
+    }
+
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    private void writeMultipartRanges(File imageFile, String contentType, List<HttpRange> ranges, long length,
+                                      HttpServletResponse response) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+
+        OutputStream out = response.getOutputStream();
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            String partHeader = "\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(start, end, length) + "\r\n\r\n";
+            out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+            copyRegion(imageFile, start, end - start + 1, out, false);
+        }
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private StreamingResponseBody writeRegion(File imageFile, long start, long count,
+                                              HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (mode == StreamingMode.PROGRESSIVE) {
+            return out -> streamProgressive(imageFile, start, count, out);
+        }
+        transferZeroCopy(imageFile, start, count, request, response);
+        return null;
+    }
+
+    private void transferZeroCopy(File imageFile, long start, long count,
+                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // The connector writes the file straight from the page cache to the socket once we return,
+            // so the in-memory ImageCache would only add a copy here.
+            request.setAttribute(SENDFILE_FILENAME, imageFile.getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
             return;
         }
 
-        response.setContentType("image/jpeg");
-        response.setHeader("Content-Length", String.valueOf(imageFile.length()));
+        // No sendfile (e.g. another container or a mock request): copy without flushing per chunk.
+        copyRegion(imageFile, start, count, response.getOutputStream(), false);
+    }
+
+    /**
+     * Runs on a virtual thread of the MVC async executor (see {@link WebMvcConfig}), so sleeping
+     * between chunks parks the virtual thread and releases its carrier.
+     */
+    private void streamProgressive(File imageFile, long start, long count, OutputStream out) throws IOException {
+        copyRegion(imageFile, start, count, out, true);
+    }
 
-        try (InputStream in = new FileInputStream(imageFile);
-             OutputStream out = response.getOutputStream()) {
+    /**
+     * Copies a region of the image from the {@link ImageCache} when it holds the file, or from disk
+     * otherwise. When {@code paced}, every chunk is flushed and followed by the progressive delay.
+     */
+    private void copyRegion(File imageFile, long start, long count, OutputStream out, boolean paced)
+            throws IOException {
+        CachedImage cached = imageCache.get(imageFile);
+        if (cached != null) {
+            cached.writeTo(out, start, count, paced ? () -> {
+                out.flush();
+                pause(); // We simulate a progressive image generation
+            } : () -> { });
+            return;
+        }
 
-            byte[] buffer = new byte[4096];
+        try (InputStream in = new FileInputStream(imageFile)) {
+            if (!paced) {
+                StreamUtils.copyRange(in, out, start, start + count - 1);
+                return;
+            }
+            in.skipNBytes(start);
+            byte[] buffer = new byte[chunkSize];
+            long remaining = count;
             int bytesRead;
-            while ((bytesRead = in.read(buffer)) != -1) {
+            while (remaining > 0 && (bytesRead = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
                 out.write(buffer, 0, bytesRead);
                 out.flush();
-                Thread.sleep(50); // We simulate a progressive image generation
-
+                remaining -= bytesRead;
+                pause(); // We simulate a progressive image generation
             }
-        } catch (IOException ex) {
-            throw ex;
         }
     }
+
+    private void pause() throws IOException {
+        try {
+            Thread.sleep(chunkDelayMillis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Progressive stream interrupted");
+        }
+    }
+
+    private static String etag(long length, long lastModified) {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    private static String contentRange(long start, long end, long length) {
+        return "bytes " + start + "-" + end + "/" + length;
+    }
 }
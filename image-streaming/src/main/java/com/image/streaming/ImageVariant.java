@@ -0,0 +1,10 @@
+package com.image.streaming;
+
+import java.io.File;
+
+/**
+ * A file that can be served for an image request, either the original or a derived encoding,
+ * together with the content type of the bytes it actually holds.
+ */
+public record ImageVariant(File file, String contentType) {
+}
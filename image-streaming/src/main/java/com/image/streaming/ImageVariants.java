@@ -0,0 +1,438 @@
+package com.image.streaming;
+
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Resolves which file to serve for an image and what it really contains.
+ *
+ * <p>Derived variants are computed once per source version:
+ * <ul>
+ * <li>progressive: opaque images become progressive JPEGs and images with transparency become
+ * Adam7-interlaced PNGs, so a browser can paint a coarse preview after the first few KB;</li>
+ * <li>resized: scaled to fit a requested box (never upscaled) and optionally re-encoded.</li>
+ * </ul>
+ * Variants are written to the derived-asset directory under a name that includes the source's
+ * modification time, so they survive restarts and a changed source simply produces a new variant.
+ * They are computed on a bounded worker pool, and concurrent requests for the same variant share a
+ * single computation. When the pool's queue is full new work is rejected rather than queued without
+ * bound.
+ *
+ * <p>Requested sizes are rounded up to the widths in {@code image.streaming.variants.widths}, so
+ * each source has a fixed set of possible variants. At most
+ * {@code image.streaming.variants.max-entries} finished variants are kept; a variant's file is
+ * deleted when it is evicted or its source changes, and files left by older source versions are
+ * removed at startup.
+ */
+@Component
+public class ImageVariants {
+
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final Set<String> OUTPUT_FORMATS = Set.of("jpeg", "png", "gif");
+
+    private final String imageRoot;
+    private final Path derivedRoot;
+    private final boolean precompute;
+    private final int[] widths;
+    private final ThreadPoolExecutor workers;
+    private final AsyncCache<String, Derived> variants;
+
+    /**
+     * A variant together with the modification time of the source it was computed from.
+     */
+    private record Derived(long sourceModified, ImageVariant variant) {
+    }
+
+    public ImageVariants(@Value("${image.streaming.root:src/main/resources/images}") String imageRoot,
+                         @Value("${image.streaming.derived-dir:target/derived-images}") String derivedRoot,
+                         @Value("${image.streaming.progressive.precompute:false}") boolean precompute,
+                         @Value("${image.streaming.variants.workers:0}") int workers,
+                         @Value("${image.streaming.variants.queue-capacity:64}") int queueCapacity,
+                         @Value("${image.streaming.variants.widths:64,128,256,512,1024,2048,4096}") int[] widths,
+                         @Value("${image.streaming.variants.max-entries:512}") long maxEntries) {
+        this.imageRoot = imageRoot;
+        this.derivedRoot = Path.of(derivedRoot);
+        this.precompute = precompute;
+        this.widths = widths.clone();
+        Arrays.sort(this.widths);
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("image-variant-"));
+        this.variants = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                // Evict and delete files on the calling thread; deleting a file is cheap.
+                .executor(Runnable::run)
+                .removalListener((String key, Derived derived, RemovalCause cause) -> {
+                    if (derived != null && cause != RemovalCause.REPLACED) {
+                        deleteDerived(derived.variant().file().toPath());
+                    }
+                })
+                .buildAsync();
+    }
+
+    @PreDestroy
+    void stop() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Returns the original file with its sniffed content type, or its progressive re-encoding.
+     */
+    public ImageVariant resolve(File source, boolean progressive) throws IOException {
+        if (!progressive) {
+            return singleFlight(source, "original", () -> new ImageVariant(source, sniff(source)), false);
+        }
+        return singleFlight(source, "progressive", () -> transcodeProgressive(source), true);
+    }
+
+    /**
+     * Returns a variant scaled to fit within {@code width} x {@code height} (either may be
+     * {@code null} to keep the aspect ratio) and encoded as {@code format}, or in the source format
+     * when {@code format} is {@code null}. Both dimensions are first rounded up to the next
+     * configured width, or down to the largest one.
+     *
+     * @throws RejectedExecutionException when the worker pool is saturated
+     */
+    public ImageVariant resize(File source, Integer width, Integer height, String format) throws IOException {
+        Integer boxWidth = snap(width);
+        Integer boxHeight = snap(height);
+        String size = "w" + (boxWidth == null ? 0 : boxWidth) + "-h" + (boxHeight == null ? 0 : boxHeight);
+        return singleFlight(source, size + "." + format,
+                () -> transcodeResized(source, boxWidth, boxHeight, format, size), true);
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        return OUTPUT_FORMATS.contains(format);
+    }
+
+    private Integer snap(Integer dimension) {
+        if (dimension == null) {
+            return null;
+        }
+        for (int width : widths) {
+            if (width >= dimension) {
+                return width;
+            }
+        }
+        return widths[widths.length - 1];
+    }
+
+    /**
+     * Returns the variant {@code name} of {@code source}, computing it once per source version.
+     * Failed computations are not cached, so the next request retries.
+     */
+    private ImageVariant singleFlight(File source, String name, Callable<ImageVariant> work, boolean onWorkerPool)
+            throws IOException {
+        String key = source.getPath() + "#" + name;
+        long sourceModified = source.lastModified();
+        CompletableFuture<Derived> cached = variants.getIfPresent(key);
+        if (cached != null && cached.isDone() && !cached.isCompletedExceptionally()
+                && cached.join().sourceModified() != sourceModified) {
+            // The source changed: drop the old variant, which also deletes its file.
+            variants.asMap().remove(key, cached);
+        }
+
+        CompletableFuture<Derived> future = variants.get(key, (k, executor) -> {
+            Callable<Derived> task = () -> new Derived(sourceModified, work.call());
+            if (!onWorkerPool) {
+                try {
+                    return CompletableFuture.completedFuture(task.call());
+                } catch (Exception ex) {
+                    return CompletableFuture.failedFuture(ex);
+                }
+            }
+            try {
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return task.call();
+                    } catch (Exception ex) {
+                        throw new CompletionException(ex);
+                    }
+                }, workers);
+            } catch (RejectedExecutionException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        });
+        try {
+            return future.join().variant();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw ex;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void prepareDerivedVariants() throws IOException {
+        File[] sources = new File(imageRoot).listFiles(File::isFile);
+        if (sources == null) {
+            return;
+        }
+        sweepDerivedDirectory(sources);
+        if (!precompute) {
+            return;
+        }
+        for (File source : sources) {
+            resolve(source, true);
+        }
+    }
+
+    /**
+     * Deletes derived files that no current source version maps to, along with temporary files
+     * left by interrupted writes.
+     */
+    void sweepDerivedDirectory(File[] sources) {
+        Set<String> current = new HashSet<>();
+        for (File source : sources) {
+            current.add(stem(source, ""));
+        }
+        File[] derived = derivedRoot.toFile().listFiles(File::isFile);
+        if (derived == null) {
+            return;
+        }
+        for (File file : derived) {
+            String name = file.getName();
+            if (name.endsWith(".tmp") || current.stream().noneMatch(name::startsWith)) {
+                deleteDerived(file.toPath());
+            }
+        }
+    }
+
+    /**
+     * Deletes a derived file; originals are never touched.
+     */
+    private void deleteDerived(Path file) {
+        if (!file.toAbsolutePath().normalize().startsWith(derivedRoot.toAbsolutePath().normalize())) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            // Left for the next startup sweep.
+        }
+    }
+
+    private ImageVariant transcodeProgressive(File source) throws IOException {
+        String stem = stem(source, "progressive");
+        Path jpeg = derivedRoot.resolve(stem + ".jpg");
+        Path png = derivedRoot.resolve(stem + ".png");
+        if (Files.isRegularFile(jpeg)) {
+            return new ImageVariant(jpeg.toFile(), MediaType.IMAGE_JPEG_VALUE);
+        }
+        if (Files.isRegularFile(png)) {
+            return new ImageVariant(png.toFile(), MediaType.IMAGE_PNG_VALUE);
+        }
+
+        BufferedImage image = ImageIO.read(source);
+        if (image == null) {
+            // Not a format ImageIO can decode: serve the original bytes as they are.
+            return new ImageVariant(source, sniff(source));
+        }
+
+        boolean opaque = isOpaque(image);
+        Path target = opaque ? jpeg : png;
+        write(opaque ? toRgb(image) : image, opaque ? "jpeg" : "png", target);
+        return new ImageVariant(target.toFile(), opaque ? MediaType.IMAGE_JPEG_VALUE : MediaType.IMAGE_PNG_VALUE);
+    }
+
+    private ImageVariant transcodeResized(File source, Integer width, Integer height, String format, String size)
+            throws IOException {
+        String sourceFormat = formatOf(sniff(source));
+        String targetFormat = format != null ? format : (sourceFormat != null ? sourceFormat : "png");
+        Path target = derivedRoot.resolve(stem(source, size) + "." + extension(targetFormat));
+        String contentType = "image/" + targetFormat;
+        if (Files.isRegularFile(target)) {
+            return new ImageVariant(target.toFile(), contentType);
+        }
+
+        BufferedImage image = ImageIO.read(source);
+        if (image == null) {
+            throw new IOException("Cannot decode image " + source);
+        }
+        BufferedImage scaled = scale(image, width, height);
+        write("jpeg".equals(targetFormat) ? toRgb(scaled) : scaled, targetFormat, target);
+        return new ImageVariant(target.toFile(), contentType);
+    }
+
+    private static String stem(File source, String variantName) {
+        String name = source.getName();
+        String base = name.contains(".") ? name.substring(0, name.lastIndexOf('.')) : name;
+        return base + "-" + Long.toHexString(source.lastModified()) + "." + variantName;
+    }
+
+    private static String formatOf(String contentType) {
+        String format = contentType.startsWith("image/") ? contentType.substring("image/".length()) : null;
+        return isSupportedFormat(format) ? format : null;
+    }
+
+    private static String extension(String format) {
+        return "jpeg".equals(format) ? "jpg" : format;
+    }
+
+    /**
+     * Scales to fit inside the requested box, keeping the aspect ratio and never upscaling. Large
+     * reductions are done in halving steps, which keeps bilinear filtering from dropping detail.
+     */
+    private static BufferedImage scale(BufferedImage image, Integer width, Integer height) {
+        double factor = 1.0;
+        if (width != null) {
+            factor = Math.min(factor, (double) width / image.getWidth());
+        }
+        if (height != null) {
+            factor = Math.min(factor, (double) height / image.getHeight());
+        }
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * factor));
+
+        BufferedImage current = image;
+        while (current.getWidth() != targetWidth || current.getHeight() != targetHeight) {
+            int stepWidth = Math.max(targetWidth, current.getWidth() / 2);
+            int stepHeight = Math.max(targetHeight, current.getHeight() / 2);
+            int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+            var step = new BufferedImage(stepWidth, stepHeight, type);
+            var graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        }
+        return current;
+    }
+
+    private void write(BufferedImage image, String format, Path target) throws IOException {
+        Files.createDirectories(derivedRoot);
+        Path tmp = Files.createTempFile(derivedRoot, target.getFileName().toString(), ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteProgressive()) {
+                // JPEG: multi-scan progressive encoding. PNG: Adam7 interlacing. GIF: interlaced rows.
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            if ("jpeg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+            }
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(tmp);
+            throw ex;
+        } finally {
+            writer.dispose();
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean isOpaque(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return true;
+        }
+        var alpha = image.getAlphaRaster();
+        int[] row = new int[image.getWidth()];
+        for (int y = 0; y < image.getHeight(); y++) {
+            alpha.getSamples(0, y, image.getWidth(), 1, 0, row);
+            for (int sample : row) {
+                if (sample != 255) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        var rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        var graphics = rgb.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+
+    /**
+     * Detects the image format from the file's magic bytes, falling back to its extension.
+     */
+    static String sniff(File file) throws IOException {
+        byte[] header;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            header = in.readNBytes(12);
+        }
+        if (startsWith(header, 0x89, 'P', 'N', 'G')) {
+            return MediaType.IMAGE_PNG_VALUE;
+        }
+        if (startsWith(header, 0xFF, 0xD8, 0xFF)) {
+            return MediaType.IMAGE_JPEG_VALUE;
+        }
+        if (startsWith(header, 'G', 'I', 'F', '8')) {
+            return MediaType.IMAGE_GIF_VALUE;
+        }
+        if (startsWith(header, 'R', 'I', 'F', 'F') && header.length == 12
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "image/webp";
+        }
+        return MediaTypeFactory.getMediaType(file.getName())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+    }
+
+    private static boolean startsWith(byte[] data, int... prefix) {
+        if (data.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((data[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,20 @@
+package com.image.streaming;
+
+/**
+ * How {@link ImageController} writes image bytes to the client.
+ */
+public enum StreamingMode {
+
+    /**
+     * Hands the file to the container's sendfile support, which copies it from the
+     * page cache to the socket with {@code FileChannel.transferTo}. Falls back to a
+     * single bulk copy when the container does not offer sendfile.
+     */
+    ZERO_COPY,
+
+    /**
+     * Demo mode: writes small chunks with a delay between them to simulate
+     * a progressively generated image.
+     */
+    PROGRESSIVE
+}
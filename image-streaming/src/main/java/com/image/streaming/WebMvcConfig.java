@@ -1,6 +1,9 @@
 package com.image.streaming;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -8,10 +11,29 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 @EnableWebMvc
 public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Value("${image.streaming.async.timeout-ms:-1}")
+    private long asyncTimeoutMillis;
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry
           .addResourceHandler("/static/**")
-          .addResourceLocations("classpath:/static/");	
+          .addResourceLocations("classpath:/static/");
+    }
+
+    /**
+     * Progressive streams are written from {@code StreamingResponseBody} callbacks. Running them on
+     * virtual threads lets each stream sleep between chunks without holding a platform thread, so
+     * the number of concurrent streams is bounded by connections rather than by a thread pool.
+     * With {@code @EnableWebMvc} Boot does not configure this for us.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        var executor = new SimpleAsyncTaskExecutor("image-stream-");
+        executor.setVirtualThreads(true);
+        configurer.setTaskExecutor(executor);
+        // A paced stream of a large image easily outlives the container's default 30 s async timeout.
+        configurer.setDefaultTimeout(asyncTimeoutMillis);
     }
 }
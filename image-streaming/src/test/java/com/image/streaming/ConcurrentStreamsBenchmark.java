@@ -0,0 +1,91 @@
+package com.image.streaming;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+/**
+ * Opens many concurrent streams against the application and reports how many complete, how long
+ * they take and how many platform threads the JVM needed, for each {@link StreamingMode}.
+ *
+ * <p>Tomcat is capped at {@code server.tomcat.threads.max=50}, so in the old thread-per-stream
+ * model only 50 progressive streams could make progress at a time. Each stream requests the first
+ * 256 KB of {@code knight.png}, paced in 8 KB chunks every 50 ms (about 1.6 s per stream), so the run
+ * measures concurrency rather than loopback bandwidth.
+ *
+ * <p>Run from the module directory with
+ * {@code java -cp target/test-classes:target/classes:<test classpath> com.image.streaming.ConcurrentStreamsBenchmark [streams]}.
+ * Large stream counts need a raised open-files limit ({@code ulimit -n}).
+ */
+public class ConcurrentStreamsBenchmark {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int streams = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        for (StreamingMode mode : StreamingMode.values()) {
+            run(mode, streams);
+        }
+    }
+
+    private static void run(StreamingMode mode, int streams) throws Exception {
+        // Passed as command-line arguments so they take precedence over application.properties.
+        var context = (ServletWebServerApplicationContext) new SpringApplicationBuilder(StreamingApplication.class)
+                .run("--server.port=0",
+                        "--server.tomcat.threads.max=50",
+                        "--server.tomcat.max-connections=20000",
+                        "--server.tomcat.accept-count=1000",
+                        "--image.streaming.mode=" + mode,
+                        "--image.streaming.progressive.chunk-size=8192",
+                        "--image.streaming.progressive.chunk-delay-ms=50",
+                        "--logging.level.root=WARN");
+        try {
+            int port = context.getWebServer().getPort();
+            var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/image/stream/knight.png"))
+                    .header("Range", "bytes=0-262143")
+                    .build();
+            var client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build();
+
+            THREADS.resetPeakThreadCount();
+            var completed = new AtomicInteger();
+            var failed = new AtomicInteger();
+            List<CompletableFuture<?>> inFlight = new ArrayList<>(streams);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < streams; i++) {
+                inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, error) -> {
+                            if (error == null && response.statusCode() == 206) {
+                                completed.incrementAndGet();
+                            } else {
+                                failed.incrementAndGet();
+                            }
+                        }));
+            }
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new))
+                    .exceptionally(error -> null)
+                    .join();
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("%-10s streams=%d completed=%d failed=%d wall=%.1fs peak-platform-threads=%d%n",
+                    mode, streams, completed.get(), failed.get(), elapsed / 1e9, THREADS.getPeakThreadCount());
+        } finally {
+            context.close();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.image.streaming;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Micro-benchmark of the ways {@link ImageController} can move a file to a client, each writing to a
+ * loopback socket drained by another thread:
+ * <ul>
+ * <li>{@code heapCopyFlushEachChunk}: the original 4 KB read/write/flush loop, without pacing;</li>
+ * <li>{@code bulkCopy}: {@code InputStream.transferTo}, one buffer and no per-chunk flush;</li>
+ * <li>{@code cachedChunks}: writing the pre-chunked arrays held by {@link ImageCache};</li>
+ * <li>{@code transferTo}: {@code FileChannel.transferTo} to the socket, what Tomcat's sendfile does.</li>
+ * </ul>
+ *
+ * <p>Run after {@code ./mvnw test-compile} from the module directory, with the GC profiler for
+ * allocation per operation:
+ * {@code java -cp target/test-classes:target/classes:<test classpath> org.openjdk.jmh.Main CopyLoopBenchmark -prof gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CopyLoopBenchmark {
+
+    @Param({ "16384", "262144", "4194304" })
+    public int fileSize;
+
+    private Path file;
+    private CachedImage cached;
+    private ServerSocketChannel server;
+    private SocketChannel socket;
+    private OutputStream socketOut;
+    private Thread drain;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("copy-loop", ".bin");
+        byte[] content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+        Files.write(file, content);
+
+        cached = new ImageCache(new SimpleMeterRegistry(), true, Long.MAX_VALUE, Long.MAX_VALUE, 4096)
+                .get(file.toFile());
+
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        drain = Thread.ofPlatform().daemon().start(this::drain);
+        socket = SocketChannel.open(server.getLocalAddress());
+        socketOut = Channels.newOutputStream(socket);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        socket.close();
+        server.close();
+        drain.interrupt();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void heapCopyFlushEachChunk() throws IOException {
+        try (InputStream in = new FileInputStream(file.toFile())) {
+            byte[] buffer = new byte[4096];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                socketOut.write(buffer, 0, bytesRead);
+                socketOut.flush();
+            }
+        }
+    }
+
+    @Benchmark
+    public void bulkCopy() throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            in.transferTo(socketOut);
+        }
+    }
+
+    @Benchmark
+    public void cachedChunks() throws IOException {
+        cached.writeTo(socketOut, 0, fileSize, () -> { });
+    }
+
+    @Benchmark
+    public void transferTo() throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = 0;
+            while (position < fileSize) {
+                position += in.transferTo(position, fileSize - position, socket);
+            }
+        }
+    }
+
+    private void drain() {
+        try (SocketChannel peer = server.accept()) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+            while (peer.read(buffer) != -1) {
+                buffer.clear();
+            }
+        } catch (IOException ignored) {
+            // benchmark finished
+        }
+    }
+}
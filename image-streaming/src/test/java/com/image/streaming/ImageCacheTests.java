@@ -0,0 +1,66 @@
+package com.image.streaming;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ImageCacheTests {
+
+	@TempDir
+	Path dir;
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final ImageCache cache = new ImageCache(registry, true, 1024, 100, 8);
+
+	@Test
+	void servesRepeatedReadsFromMemory() throws Exception {
+		File file = write("a.png", "0123456789abcdefghij");
+
+		CachedImage first = cache.get(file);
+		CachedImage second = cache.get(file);
+
+		assertThat(second).isSameAs(first);
+		assertThat(first.chunks()).hasNumberOfRows(3);
+		assertThat(read(second, 5, 10)).isEqualTo("56789abcde");
+		assertThat(registry.get("cache.gets").tag("cache", "images").tag("result", "hit").functionCounter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void reloadsWhenFileChanges() throws Exception {
+		File file = write("a.png", "old content");
+		cache.get(file);
+
+		Files.writeString(file.toPath(), "new content!");
+		file.setLastModified(file.lastModified() + 2000);
+
+		assertThat(read(cache.get(file), 0, 12)).isEqualTo("new content!");
+	}
+
+	@Test
+	void skipsFilesLargerThanEntryLimit() throws Exception {
+		File file = write("big.png", "x".repeat(101));
+
+		assertThat(cache.get(file)).isNull();
+	}
+
+	private File write(String name, String content) throws Exception {
+		return Files.writeString(dir.resolve(name), content).toFile();
+	}
+
+	private static String read(CachedImage image, long start, long count) throws Exception {
+		var out = new ByteArrayOutputStream();
+		image.writeTo(out, start, count, () -> { });
+		return out.toString();
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.image.streaming;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Progressive mode returns a {@code StreamingResponseBody}, so the paced writes happen after the
+ * request thread has handed the response over to the async executor.
+ */
+@SpringBootTest(properties = {
+		"image.streaming.derived-dir=target/test-derived-images",
+		"image.streaming.mode=PROGRESSIVE",
+		"image.streaming.progressive.chunk-size=65536",
+		"image.streaming.progressive.chunk-delay-ms=1" })
+@AutoConfigureMockMvc
+class ImageControllerProgressiveTests {
+
+	private static final Path KNIGHT = Path.of("src/main/resources/images/knight.png");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void streamsWholeFileAsynchronously() throws Exception {
+		byte[] expected = Files.readAllBytes(KNIGHT);
+
+		MvcResult started = mockMvc.perform(get("/api/image/stream/knight.png").param("progressive", "false"))
+				.andExpect(request().asyncStarted())
+				.andExpect(header().longValue("Content-Length", expected.length))
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(started))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "image/png"))
+				.andExpect(content().bytes(expected));
+	}
+
+	@Test
+	void streamsSingleRangeAsynchronously() throws Exception {
+		byte[] expected = Files.readAllBytes(KNIGHT);
+
+		MvcResult started = mockMvc.perform(get("/api/image/stream/knight.png").param("progressive", "false")
+						.header("Range", "bytes=100000-299999"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(started))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string("Content-Range", "bytes 100000-299999/" + expected.length))
+				.andExpect(header().longValue("Content-Length", 200_000))
+				.andExpect(content().bytes(Arrays.copyOfRange(expected, 100_000, 300_000)));
+	}
+
+	@Test
+	void streamsProgressiveVariantByDefault() throws Exception {
+		MvcResult started = mockMvc.perform(get("/api/image/stream/knight.png"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		var response = mockMvc.perform(asyncDispatch(started))
+				.andExpect(status().isOk())
+				.andReturn().getResponse();
+
+		assertThat(response.getContentLengthLong()).isEqualTo(response.getContentAsByteArray().length);
+		assertThat(ImageIO.read(new ByteArrayInputStream(response.getContentAsByteArray()))).isNotNull();
+	}
+}
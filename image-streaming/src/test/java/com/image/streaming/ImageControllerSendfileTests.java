@@ -0,0 +1,111 @@
+package com.image.streaming;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Runs against the embedded Tomcat, which is the only place the sendfile hand-over happens: MockMvc
+ * requests have no sendfile support and take the copy fallback.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+		properties = "image.streaming.derived-dir=target/test-derived-images")
+class ImageControllerSendfileTests {
+
+	private static final Path KNIGHT = Path.of("src/main/resources/images/knight.png");
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private SendfileRecorder recorder;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@BeforeEach
+	void reset() {
+		recorder.last = null;
+	}
+
+	@Test
+	void handsWholeFileToSendfile() throws Exception {
+		byte[] expected = Files.readAllBytes(KNIGHT);
+
+		HttpResponse<byte[]> response = send(HttpRequest.newBuilder(uri("/api/image/stream/knight.png")));
+
+		assertThat(response.statusCode()).isEqualTo(200);
+		assertThat(response.body()).isEqualTo(expected);
+		assertThat(recorder.last).containsExactly(KNIGHT.toFile().getCanonicalPath(), 0L, (long) expected.length);
+	}
+
+	@Test
+	void handsSingleRangeToSendfile() throws Exception {
+		byte[] expected = Files.readAllBytes(KNIGHT);
+
+		HttpResponse<byte[]> response = send(HttpRequest.newBuilder(uri("/api/image/stream/knight.png"))
+				.header("Range", "bytes=100000-299999"));
+
+		assertThat(response.statusCode()).isEqualTo(206);
+		assertThat(response.body()).isEqualTo(Arrays.copyOfRange(expected, 100_000, 300_000));
+		assertThat(recorder.last).containsExactly(KNIGHT.toFile().getCanonicalPath(), 100_000L, 300_000L);
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+
+	private HttpResponse<byte[]> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+		return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	@TestConfiguration
+	static class SendfileConfiguration {
+
+		@Bean
+		SendfileRecorder sendfileRecorder() {
+			return new SendfileRecorder();
+		}
+	}
+
+	/**
+	 * Records the sendfile attributes the controller left on the request for the connector.
+	 */
+	static class SendfileRecorder extends OncePerRequestFilter {
+
+		volatile List<Object> last;
+
+		@Override
+		protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+				throws ServletException, IOException {
+			chain.doFilter(request, response);
+			Object filename = request.getAttribute("org.apache.tomcat.sendfile.filename");
+			if (filename != null) {
+				last = List.of(filename, request.getAttribute("org.apache.tomcat.sendfile.start"),
+						request.getAttribute("org.apache.tomcat.sendfile.end"));
+			}
+		}
+	}
+}
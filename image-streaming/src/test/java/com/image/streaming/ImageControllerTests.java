@@ -0,0 +1,170 @@
+package com.image.streaming;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest(properties = "image.streaming.derived-dir=target/test-derived-images")
+@AutoConfigureMockMvc
+class ImageControllerTests {
+
+	private static final Path KNIGHT = Path.of("src/main/resources/images/knight.png");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void streamsWholeFileWithoutSendfileSupport() throws Exception {
+		byte[] expected = Files.readAllBytes(KNIGHT);
+
+		mockMvc.perform(get("/api/image/stream/knight.png"))
+				.andExpect(status().isOk())
+				.andExpect(header().longValue("Content-Length", expected.length))
+				.andExpect(content().bytes(expected));
+	}
+
+	@Test
+	void sendsContentTypeOfActualFormat() throws Exception {
+		mockMvc.perform(get("/api/image/stream/knight.png"))
+				.andExpect(header().string("Content-Type", "image/png"));
+	}
+
+	@Test
+	void servesProgressivelyEncodedVariant() throws Exception {
+		var response = mockMvc.perform(get("/api/image/stream/knight.png").param("progressive", "true"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse();
+		byte[] body = response.getContentAsByteArray();
+
+		if ("image/jpeg".equals(response.getContentType())) {
+			// SOF2 marks a progressive DCT frame.
+			assertThat(indexOf(body, (byte) 0xFF, (byte) 0xC2)).isPositive();
+		} else {
+			assertThat(response.getContentType()).isEqualTo("image/png");
+			// IHDR interlace method byte: 1 = Adam7.
+			assertThat(body[28]).isEqualTo((byte) 1);
+		}
+		assertThat(ImageIO.read(new ByteArrayInputStream(body))).isNotNull();
+	}
+
+	@Test
+	void servesResizedVariant() throws Exception {
+		var response = mockMvc.perform(get("/api/image/knight.png").param("w", "128").param("fmt", "jpg"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "image/jpeg"))
+				.andReturn().getResponse();
+
+		var image = ImageIO.read(new ByteArrayInputStream(response.getContentAsByteArray()));
+		assertThat(image.getWidth()).isEqualTo(128);
+		assertThat(image.getHeight()).isEqualTo(224);
+	}
+
+	@Test
+	void rejectsInvalidVariantParameters() throws Exception {
+		mockMvc.perform(get("/api/image/knight.png").param("w", "0"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/api/image/knight.png").param("fmt", "tiff"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void servesSingleByteRange() throws Exception {
+		byte[] expected = Files.readAllBytes(KNIGHT);
+
+		mockMvc.perform(get("/api/image/stream/knight.png").header("Range", "bytes=100-199"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string("Content-Range", "bytes 100-199/" + expected.length))
+				.andExpect(header().longValue("Content-Length", 100))
+				.andExpect(content().bytes(Arrays.copyOfRange(expected, 100, 200)));
+	}
+
+	@Test
+	void servesMultipleRangesAsMultipart() throws Exception {
+		long length = Files.size(KNIGHT);
+
+		mockMvc.perform(get("/api/image/stream/knight.png").header("Range", "bytes=0-9,-10"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string("Content-Type", startsWith("multipart/byteranges; boundary=")))
+				.andExpect(content().string(containsString("Content-Range: bytes 0-9/" + length)))
+				.andExpect(content().string(containsString(
+						"Content-Range: bytes " + (length - 10) + "-" + (length - 1) + "/" + length)));
+	}
+
+	@Test
+	void rejectsUnsatisfiableRange() throws Exception {
+		long length = Files.size(KNIGHT);
+
+		mockMvc.perform(get("/api/image/stream/knight.png").header("Range", "bytes=" + length + "-"))
+				.andExpect(status().isRequestedRangeNotSatisfiable())
+				.andExpect(header().string("Content-Range", "bytes */" + length));
+	}
+
+	@Test
+	void ignoresMalformedRange() throws Exception {
+		byte[] expected = Files.readAllBytes(KNIGHT);
+
+		for (String range : new String[] { "bytes=abc", "items=0-9", "bytes=9-0" }) {
+			mockMvc.perform(get("/api/image/stream/knight.png").header("Range", range))
+					.andExpect(status().isOk())
+					.andExpect(header().doesNotExist("Content-Range"))
+					.andExpect(header().longValue("Content-Length", expected.length))
+					.andExpect(content().bytes(expected));
+		}
+	}
+
+	@Test
+	void answersNotModifiedForMatchingValidators() throws Exception {
+		var first = mockMvc.perform(get("/api/image/stream/knight.png"))
+				.andExpect(header().exists("ETag"))
+				.andExpect(header().exists("Last-Modified"))
+				.andReturn().getResponse();
+
+		mockMvc.perform(get("/api/image/stream/knight.png").header("If-None-Match", first.getHeader("ETag")))
+				.andExpect(status().isNotModified());
+		mockMvc.perform(get("/api/image/stream/knight.png")
+						.header("If-Modified-Since", first.getHeader("Last-Modified")))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void ignoresRangeWhenIfRangeIsStale() throws Exception {
+		mockMvc.perform(get("/api/image/stream/knight.png")
+						.header("Range", "bytes=0-9")
+						.header("If-Range", "\"stale\""))
+				.andExpect(status().isOk())
+				.andExpect(header().longValue("Content-Length", Files.size(KNIGHT)));
+	}
+
+	@Test
+	void returnsNotFoundForMissingImage() throws Exception {
+		mockMvc.perform(get("/api/image/stream/missing.png"))
+				.andExpect(status().isNotFound());
+	}
+
+	private static int indexOf(byte[] data, byte first, byte second) {
+		for (int i = 0; i < data.length - 1; i++) {
+			if (data[i] == first && data[i + 1] == second) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
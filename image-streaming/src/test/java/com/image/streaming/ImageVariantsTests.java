@@ -0,0 +1,87 @@
+package com.image.streaming;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ImageVariantsTests {
+
+	@TempDir
+	Path dir;
+
+	private Path images;
+	private Path derived;
+	private File knight;
+	private ImageVariants variants;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		images = Files.createDirectories(dir.resolve("images"));
+		derived = dir.resolve("derived");
+		knight = Files.copy(Path.of("src/main/resources/images/knight.png"), images.resolve("knight.png")).toFile();
+		variants = new ImageVariants(images.toString(), derived.toString(), false, 1, 4,
+				new int[] { 128, 64 }, 2);
+	}
+
+	@AfterEach
+	void tearDown() {
+		variants.stop();
+	}
+
+	@Test
+	void roundsRequestedSizesUpToConfiguredWidths() throws Exception {
+		ImageVariant first = variants.resize(knight, 100, null, "png");
+		ImageVariant second = variants.resize(knight, 128, null, "png");
+		ImageVariant larger = variants.resize(knight, 1000, null, "png");
+
+		assertThat(second.file()).isEqualTo(first.file());
+		assertThat(larger.file()).isEqualTo(first.file());
+		assertThat(ImageIO.read(first.file()).getWidth()).isEqualTo(128);
+		assertThat(ImageIO.read(variants.resize(knight, 10, null, "png").file()).getWidth()).isEqualTo(64);
+	}
+
+	@Test
+	void deletesFilesOfEvictedVariants() throws Exception {
+		for (String format : new String[] { "png", "jpeg", "gif", "png" }) {
+			variants.resize(knight, 64, null, format);
+			variants.resize(knight, 128, null, format);
+		}
+
+		try (var files = Files.list(derived)) {
+			assertThat(files.count()).isLessThanOrEqualTo(2);
+		}
+	}
+
+	@Test
+	void replacesVariantWhenSourceChanges() throws Exception {
+		File old = variants.resize(knight, 64, null, "png").file();
+
+		assertThat(knight.setLastModified(knight.lastModified() + 60_000)).isTrue();
+		File current = variants.resize(knight, 64, null, "png").file();
+
+		assertThat(current).isNotEqualTo(old).exists();
+		assertThat(old).doesNotExist();
+	}
+
+	@Test
+	void sweepsFilesOfOldSourceVersions() throws Exception {
+		File current = variants.resize(knight, 64, null, "png").file();
+		Path stale = Files.writeString(derived.resolve("knight-1.w64-h0.png"), "stale");
+		Path leftover = Files.writeString(derived.resolve("knight.png123.tmp"), "partial");
+
+		variants.sweepDerivedDirectory(new File[] { knight });
+
+		assertThat(current).exists();
+		assertThat(stale).doesNotExist();
+		assertThat(leftover).doesNotExist();
+	}
+}
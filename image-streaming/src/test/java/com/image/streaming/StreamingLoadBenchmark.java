@@ -0,0 +1,167 @@
+package com.image.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+/**
+ * Load harness for the streaming endpoint. For each {@link StreamingMode} it starts the application
+ * on a random port, serving generated files of several sizes, and runs:
+ * <ul>
+ * <li>{@code full}: concurrent whole-file downloads per file size;</li>
+ * <li>{@code range}: concurrent random 64 KB range requests into the largest file.</li>
+ * </ul>
+ * In {@code PROGRESSIVE} mode both scenarios are paced progressive streams (16 KB chunks every 5 ms
+ * so the run stays short).
+ *
+ * <p>For every scenario it reports p50/p99 time to first byte, throughput, and server-side heap
+ * allocation per request. Clients use {@link HttpURLConnection} on dedicated platform threads so
+ * their allocations can be measured and subtracted from the JVM-wide total.
+ *
+ * <p>Run from the module directory with
+ * {@code java -cp target/test-classes:target/classes:<test classpath> com.image.streaming.StreamingLoadBenchmark [clients] [requests-per-client]}.
+ */
+public class StreamingLoadBenchmark {
+
+    private static final int[] FILE_SIZES = { 16 * 1024, 256 * 1024, 4 * 1024 * 1024 };
+    private static final int RANGE_SIZE = 64 * 1024;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    record Result(long[] ttfbNanos, long bytes, long elapsedNanos, long serverAllocated) {
+    }
+
+    interface Request {
+        HttpURLConnection open() throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        Path root = Files.createTempDirectory("streaming-load");
+        Random random = new Random(42);
+        for (int size : FILE_SIZES) {
+            byte[] content = new byte[size];
+            random.nextBytes(content);
+            Files.write(root.resolve(size + ".bin"), content);
+        }
+
+        System.out.printf("%-11s %-6s %9s %8s %10s %10s %10s %9s %14s%n",
+                "mode", "kind", "size", "requests", "p50 ttfb", "p99 ttfb", "MB/s", "req/s", "alloc/req");
+        for (StreamingMode mode : StreamingMode.values()) {
+            var context = start(mode, root);
+            try {
+                int port = context.getWebServer().getPort();
+                String base = "http://localhost:" + port + "/api/image/stream/";
+
+                for (int size : FILE_SIZES) {
+                    URI uri = URI.create(base + size + ".bin");
+                    run(clients, requestsPerClient, () -> (HttpURLConnection) uri.toURL().openConnection());
+                    report(mode, "full", size, run(clients, requestsPerClient,
+                            () -> (HttpURLConnection) uri.toURL().openConnection()));
+                }
+
+                int largest = FILE_SIZES[FILE_SIZES.length - 1];
+                URI uri = URI.create(base + largest + ".bin");
+                Request range = () -> {
+                    var connection = (HttpURLConnection) uri.toURL().openConnection();
+                    long start = ThreadLocalRandom.current().nextLong(largest - RANGE_SIZE);
+                    connection.setRequestProperty("Range", "bytes=" + start + "-" + (start + RANGE_SIZE - 1));
+                    return connection;
+                };
+                run(clients, requestsPerClient, range);
+                report(mode, "range", RANGE_SIZE, run(clients, requestsPerClient, range));
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private static ServletWebServerApplicationContext start(StreamingMode mode, Path root) {
+        // Passed as command-line arguments so they take precedence over application.properties.
+        return (ServletWebServerApplicationContext) new SpringApplicationBuilder(StreamingApplication.class)
+                .run("--server.port=0",
+                        "--image.streaming.root=" + root,
+                        "--image.streaming.mode=" + mode,
+                        "--image.streaming.progressive.chunk-size=16384",
+                        "--image.streaming.progressive.chunk-delay-ms=5",
+                        "--logging.level.root=WARN");
+    }
+
+    /**
+     * Runs {@code clients} platform threads that each issue {@code requestsPerClient} requests.
+     */
+    private static Result run(int clients, int requestsPerClient, Request request) throws InterruptedException {
+        long[] ttfb = new long[clients * requestsPerClient];
+        var bytes = new AtomicLong();
+        var clientAllocated = new AtomicLong();
+        List<Thread> threads = new ArrayList<>(clients);
+
+        long allocatedBefore = THREADS.getTotalThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            int offset = c * requestsPerClient;
+            threads.add(Thread.ofPlatform().start(() -> {
+                long threadId = Thread.currentThread().threadId();
+                long ownBefore = THREADS.getThreadAllocatedBytes(threadId);
+                byte[] buffer = new byte[64 * 1024];
+                for (int i = 0; i < requestsPerClient; i++) {
+                    try {
+                        long requestStart = System.nanoTime();
+                        HttpURLConnection connection = request.open();
+                        try (InputStream in = connection.getInputStream()) {
+                            int read = in.read(buffer);
+                            ttfb[offset + i] = System.nanoTime() - requestStart;
+                            long total = Math.max(read, 0);
+                            while ((read = in.read(buffer)) != -1) {
+                                total += read;
+                            }
+                            bytes.addAndGet(total);
+                        }
+                    } catch (IOException ex) {
+                        ttfb[offset + i] = Long.MAX_VALUE;
+                    }
+                }
+                clientAllocated.addAndGet(THREADS.getThreadAllocatedBytes(threadId) - ownBefore);
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        long serverAllocated = THREADS.getTotalThreadAllocatedBytes() - allocatedBefore - clientAllocated.get();
+        return new Result(ttfb, bytes.get(), elapsed, serverAllocated);
+    }
+
+    private static void report(StreamingMode mode, String kind, int size, Result result) {
+        long[] sorted = result.ttfbNanos().clone();
+        Arrays.sort(sorted);
+        int requests = sorted.length;
+        double seconds = result.elapsedNanos() / 1e9;
+        System.out.printf("%-11s %-6s %9d %8d %8.2fms %8.2fms %10.1f %9.0f %11.1f KB%n",
+                mode, kind, size, requests,
+                percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6,
+                result.bytes() / (1024.0 * 1024.0) / seconds,
+                requests / seconds,
+                result.serverAllocated() / 1024.0 / requests);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+}
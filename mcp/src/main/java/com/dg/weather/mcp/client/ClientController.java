@@ -1,18 +1,28 @@
 package com.dg.weather.mcp.client;
 
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
 import io.modelcontextprotocol.spec.McpSchema.ListToolsResult;
+import reactor.core.publisher.Mono;
 
 @RestController("/")
 public class ClientController {
     private final ClientService clientService;
+    private final int maxBatchSize;
 
-    public ClientController(ClientService clientService) {
+    public ClientController(ClientService clientService, @Value("${mcp.client.batch-max-size:60}") int maxBatchSize) {
         this.clientService = clientService;
+        this.maxBatchSize = maxBatchSize;
     }
 
     @GetMapping("/tools")
@@ -21,7 +31,16 @@ public class ClientController {
     }
 
     @GetMapping("/alerts/{state}")
-    public CallToolResult getAlerts(@PathVariable("state") String state) {
+    public Mono<CallToolResult> getAlerts(@PathVariable("state") String state) {
         return clientService.callAlertTool(state);
     }
+
+    @GetMapping("/alerts")
+    public Mono<Map<String, CallToolResult>> getAlerts(@RequestParam("states") List<String> states) {
+        if (states.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most %d states per request".formatted(maxBatchSize));
+        }
+        return clientService.callAlertTools(states);
+    }
 }
@@ -1,28 +1,59 @@
 package com.dg.weather.mcp.client;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import io.modelcontextprotocol.client.McpAsyncClient;
 import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
 import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
 import io.modelcontextprotocol.spec.McpSchema.ListToolsResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Service
 public class ClientService {
-    private final AppMcpClient mcpClient;
+    private final McpClientPool mcpClients;
+    private final int batchConcurrency;
+    private final AtomicReference<ListToolsResult> tools = new AtomicReference<>();
 
-    public ClientService(AppMcpClient mcpClient) {
-        this.mcpClient = mcpClient;
+    public ClientService(McpClientPool mcpClients,
+                         @Value("${mcp.client.batch-concurrency:32}") int batchConcurrency) {
+        this.mcpClients = mcpClients;
+        this.batchConcurrency = batchConcurrency;
+        mcpClients.onToolsChanged(changed -> tools.set(new ListToolsResult(changed, null)));
     }
 
+    /**
+     * Returns the server's tools, listed once and then kept until the server announces a change.
+     */
     public ListToolsResult getTools() {
-        return mcpClient.get().listTools();
+        var cached = tools.get();
+        if (cached == null) {
+            var listed = mcpClients.execute(McpAsyncClient::listTools);
+            cached = tools.compareAndSet(null, listed) ? listed : tools.get();
+        }
+        return cached;
     }
     
-    public CallToolResult callAlertTool(String state) {
-        var alertResult = mcpClient.get().callTool(new CallToolRequest("getAlerts", Map.of("state", state)));
+    public Mono<CallToolResult> callAlertTool(String state) {
+        return mcpClients.submit(client -> client.callTool(new CallToolRequest("getAlerts", Map.of("state", state))));
+    }
 
-        return alertResult;
+    /**
+     * Fetches the alerts for every state, {@code mcp.client.batch-concurrency} tool calls in flight at
+     * a time, keyed by state in the order given. A state whose call fails maps to an error result.
+     */
+    public Mono<Map<String, CallToolResult>> callAlertTools(List<String> states) {
+        return Flux.fromIterable(states)
+                .distinct()
+                .flatMapSequential(state -> callAlertTool(state)
+                        .onErrorResume(e -> Mono.just(new CallToolResult(e.getMessage(), true)))
+                        .map(result -> Map.entry(state, result)), batchConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new);
     }
 }
@@ -0,0 +1,262 @@
+package com.dg.weather.mcp.client;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.modelcontextprotocol.client.McpAsyncClient;
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.transport.HttpClientStreamableHttpTransport;
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.client.transport.StdioClientTransport;
+import io.modelcontextprotocol.json.McpJsonMapper;
+import io.modelcontextprotocol.spec.McpClientTransport;
+import io.modelcontextprotocol.spec.McpError;
+import io.modelcontextprotocol.spec.McpSchema.Tool;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Keeps {@code mcp.client.pool-size} initialized connections to the weather MCP server and sends
+ * each request down the least busy one, with at most {@code mcp.client.max-concurrency} requests in
+ * flight across the pool. Every {@code mcp.client.health-check-interval} each connection is pinged;
+ * one that fails a ping, or fails a request without an MCP error from the server (the server process
+ * died, the session was dropped), is closed and replaced in the background.
+ *
+ * <p>{@link #execute} blocks its caller for the result; {@link #submit} does not, and requests
+ * submitted together are pipelined over the connections rather than waiting for each other. Both
+ * count against the same concurrency limit.
+ */
+@Component
+public class McpClientPool {
+
+    private static final Logger log = LoggerFactory.getLogger(McpClientPool.class);
+
+    private static final class Connection {
+
+        private final int slot;
+        private final McpAsyncClient client;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        Connection(int slot, McpAsyncClient client) {
+            this.slot = slot;
+            this.client = client;
+        }
+    }
+
+    private final Supplier<McpClientTransport> transports;
+    private final AtomicReferenceArray<Connection> connections;
+    private final Semaphore permits;
+    private final Duration requestTimeout;
+    private final Duration acquireTimeout;
+    private final Duration healthCheckInterval;
+    private final List<Consumer<List<Tool>>> toolsChangedListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService healthChecks =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("mcp-health").factory());
+    private final Scheduler permitWaits = Schedulers.fromExecutorService(
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("mcp-request-", 0).factory()));
+
+    @Autowired
+    public McpClientPool(@Value("${mcp.client.transport:STDIO}") McpTransportType transport,
+                         @Value("${mcp.client.command:java}") String command,
+                         @Value("${mcp.client.args:-jar,target/weather.mcp-0.0.1-SNAPSHOT.jar}") List<String> args,
+                         @Value("${mcp.client.url:http://localhost:8080}") String url,
+                         @Value("${mcp.client.endpoint:/mcp}") String endpoint,
+                         @Value("${mcp.client.pool-size:0}") int poolSize,
+                         @Value("${mcp.client.max-concurrency:64}") int maxConcurrency,
+                         @Value("${mcp.client.request-timeout:30s}") Duration requestTimeout,
+                         @Value("${mcp.client.acquire-timeout:5s}") Duration acquireTimeout,
+                         @Value("${mcp.client.health-check-interval:15s}") Duration healthCheckInterval) {
+        this(switch (transport) {
+            case STDIO -> () -> new StdioClientTransport(ServerParameters.builder(command).args(args).build(),
+                    McpJsonMapper.createDefault());
+            case STREAMABLE_HTTP -> () -> HttpClientStreamableHttpTransport.builder(url).endpoint(endpoint).build();
+        }, poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors(), maxConcurrency, requestTimeout,
+                acquireTimeout, healthCheckInterval);
+    }
+
+    McpClientPool(Supplier<McpClientTransport> transports, int poolSize, int maxConcurrency, Duration requestTimeout,
+                  Duration acquireTimeout, Duration healthCheckInterval) {
+        this.transports = transports;
+        this.connections = new AtomicReferenceArray<>(poolSize);
+        this.permits = new Semaphore(maxConcurrency);
+        this.requestTimeout = requestTimeout;
+        this.acquireTimeout = acquireTimeout;
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    @PostConstruct
+    void start() {
+        for (int slot = 0; slot < connections.length(); slot++) {
+            connect(slot);
+        }
+        healthChecks.scheduleWithFixedDelay(this::checkAll, healthCheckInterval.toMillis(),
+                healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        healthChecks.shutdownNow();
+        permitWaits.dispose();
+        for (int slot = 0; slot < connections.length(); slot++) {
+            var connection = connections.getAndSet(slot, null);
+            if (connection != null) {
+                close(connection);
+            }
+        }
+    }
+
+    /**
+     * Sends {@code request} on the least busy connection and waits up to
+     * {@code mcp.client.request-timeout} for its result.
+     */
+    public <T> T execute(Function<McpAsyncClient, Mono<T>> request) {
+        return submit(request).block();
+    }
+
+    /**
+     * Sends {@code request} on the least busy connection when subscribed to, without blocking. Many
+     * requests can be in flight on one connection at once, but no more than
+     * {@code mcp.client.max-concurrency} across the pool: beyond that a request waits up to
+     * {@code mcp.client.acquire-timeout} for one to finish, on a virtual thread rather than the
+     * subscriber's.
+     */
+    public <T> Mono<T> submit(Function<McpAsyncClient, Mono<T>> request) {
+        return Mono.using(this::acquirePermit, permit -> send(request), permit -> permits.release())
+                .subscribeOn(permitWaits);
+    }
+
+    private <T> Mono<T> send(Function<McpAsyncClient, Mono<T>> request) {
+        var connection = leastBusy();
+        connection.inFlight.incrementAndGet();
+        // Deferred so that a request that throws instead of returning a Mono still reaches doFinally.
+        return Mono.defer(() -> request.apply(connection.client))
+                .timeout(requestTimeout)
+                .doOnError(e -> !(e instanceof McpError), e -> healthChecks.execute(() -> check(connection)))
+                .doFinally(signal -> connection.inFlight.decrementAndGet());
+    }
+
+    private boolean acquirePermit() throws InterruptedException {
+        if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("No MCP request slot free within " + acquireTimeout);
+        }
+        return true;
+    }
+
+    /**
+     * Calls {@code listener} with the server's tools whenever it announces that they have changed.
+     */
+    public void onToolsChanged(Consumer<List<Tool>> listener) {
+        toolsChangedListeners.add(listener);
+    }
+
+    /**
+     * Returns the number of connections currently open.
+     */
+    public int available() {
+        int available = 0;
+        for (int slot = 0; slot < connections.length(); slot++) {
+            if (connections.get(slot) != null) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    int inFlight() {
+        int inFlight = 0;
+        for (int slot = 0; slot < connections.length(); slot++) {
+            var connection = connections.get(slot);
+            if (connection != null) {
+                inFlight += connection.inFlight.get();
+            }
+        }
+        return inFlight;
+    }
+
+    private Connection leastBusy() {
+        Connection leastBusy = null;
+        for (int slot = 0; slot < connections.length(); slot++) {
+            var connection = connections.get(slot);
+            if (connection != null && (leastBusy == null || connection.inFlight.get() < leastBusy.inFlight.get())) {
+                leastBusy = connection;
+            }
+        }
+        if (leastBusy == null) {
+            throw new IllegalStateException("No MCP connection available");
+        }
+        return leastBusy;
+    }
+
+    private void checkAll() {
+        for (int slot = 0; slot < connections.length(); slot++) {
+            var connection = connections.get(slot);
+            if (connection == null) {
+                connect(slot);
+            } else {
+                check(connection);
+            }
+        }
+    }
+
+    private void check(Connection connection) {
+        if (connections.get(connection.slot) != connection) {
+            return;
+        }
+        try {
+            connection.client.ping().block(requestTimeout);
+        } catch (RuntimeException e) {
+            log.warn("MCP connection {} failed its health check, reconnecting: {}", connection.slot, e.getMessage());
+            if (connections.compareAndSet(connection.slot, connection, null)) {
+                close(connection);
+                connect(connection.slot);
+            }
+        }
+    }
+
+    private void connect(int slot) {
+        McpAsyncClient client = null;
+        try {
+            client = McpClient.async(transports.get())
+                    .requestTimeout(requestTimeout)
+                    .initializationTimeout(requestTimeout)
+                    .toolsChangeConsumer(tools -> Mono.fromRunnable(
+                            () -> toolsChangedListeners.forEach(listener -> listener.accept(tools))))
+                    .build();
+            client.initialize().block(requestTimeout);
+            connections.set(slot, new Connection(slot, client));
+        } catch (RuntimeException e) {
+            log.warn("Could not open MCP connection {}, retrying in {}: {}", slot, healthCheckInterval,
+                    e.getMessage());
+            if (client != null) {
+                client.close();
+            }
+        }
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.client.closeGracefully().block(Duration.ofSeconds(5));
+        } catch (RuntimeException e) {
+            connection.client.close();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.dg.weather.mcp.client;
+
+/**
+ * How {@link McpClientPool} reaches the weather MCP server.
+ */
+public enum McpTransportType {
+    /**
+     * Each connection starts its own server process and talks to it over stdin and stdout.
+     */
+    STDIO,
+    /**
+     * Each connection is a streamable-HTTP session with a running server.
+     */
+    STREAMABLE_HTTP
+}
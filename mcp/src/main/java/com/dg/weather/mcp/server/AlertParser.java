@@ -0,0 +1,136 @@
+package com.dg.weather.mcp.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.dg.weather.mcp.server.WeatherClient.Alert;
+import com.dg.weather.mcp.server.WeatherClient.Alert.Feature;
+import com.dg.weather.mcp.server.WeatherClient.Alert.Properties;
+import com.dg.weather.mcp.server.WeatherClient.Severity;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads an {@code /alerts} GeoJSON response token by token, keeping only the {@link Properties}
+ * fields the tools show. Geometry, references and the other properties, which make up most of a
+ * large response, are skipped without being built into a tree. Alerts below the minimum severity
+ * are dropped as they are read; with a limit, only the most severe alerts seen so far are held.
+ */
+final class AlertParser {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private record Ranked(Properties properties, int rank, int index) {}
+
+    private static final Comparator<Ranked> MOST_SEVERE_FIRST =
+            Comparator.comparingInt(Ranked::rank).reversed().thenComparingInt(Ranked::index);
+
+    private AlertParser() {
+    }
+
+    /**
+     * Parses the alerts in {@code in} with at least {@code minSeverity} ({@code null} for all). With a
+     * positive {@code limit}, returns at most that many, most severe first; otherwise in the order
+     * the API sent them.
+     */
+    static Alert parse(InputStream in, Severity minSeverity, int limit) throws IOException {
+        var kept = limit > 0 ? new PriorityQueue<>(limit + 1, MOST_SEVERE_FIRST.reversed()) : null;
+        var all = limit > 0 ? null : new ArrayList<Ranked>();
+        int index = 0;
+
+        try (var parser = JSON.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var field = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && field.equals("features")) {
+                    for (var token = parser.nextToken(); token != null && token != JsonToken.END_ARRAY;
+                            token = parser.nextToken()) {
+                        if (token != JsonToken.START_OBJECT) {
+                            parser.skipChildren();
+                            continue;
+                        }
+                        var properties = readFeature(parser);
+                        if (properties == null) {
+                            continue;
+                        }
+                        var severity = Severity.of(properties.severity());
+                        if (minSeverity != null && severity.compareTo(minSeverity) < 0) {
+                            continue;
+                        }
+                        var ranked = new Ranked(properties, severity.ordinal(), index++);
+                        if (kept != null) {
+                            kept.add(ranked);
+                            if (kept.size() > limit) {
+                                kept.poll();
+                            }
+                        } else {
+                            all.add(ranked);
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        List<Ranked> ranked = all;
+        if (kept != null) {
+            ranked = new ArrayList<>(kept);
+            ranked.sort(MOST_SEVERE_FIRST);
+        }
+        var features = new ArrayList<Feature>(ranked.size());
+        for (var alert : ranked) {
+            features.add(new Feature(alert.properties()));
+        }
+        return new Alert(features);
+    }
+
+    /**
+     * Reads one feature object, returning its properties or {@code null} if it has none.
+     */
+    private static Properties readFeature(JsonParser parser) throws IOException {
+        Properties properties = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.currentName();
+            if (parser.nextToken() == JsonToken.START_OBJECT && field.equals("properties")) {
+                properties = readProperties(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return properties;
+    }
+
+    private static Properties readProperties(JsonParser parser) throws IOException {
+        String event = null;
+        String areaDesc = null;
+        String severity = null;
+        String description = null;
+        String instruction = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.currentName();
+            var value = parser.nextToken();
+            if (value.isStructStart()) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "event" -> event = parser.getValueAsString();
+                case "areaDesc" -> areaDesc = parser.getValueAsString();
+                case "severity" -> severity = parser.getValueAsString();
+                case "description" -> description = parser.getValueAsString();
+                case "instruction" -> instruction = parser.getValueAsString();
+                default -> {
+                }
+            }
+        }
+        return new Properties(event, areaDesc, severity, description, instruction);
+    }
+}
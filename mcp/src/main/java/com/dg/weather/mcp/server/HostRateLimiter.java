@@ -0,0 +1,63 @@
+package com.dg.weather.mcp.server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Spaces requests to each host at {@code weather.api.requests-per-second}, letting up to
+ * {@code weather.api.burst} through at once after a quiet spell. Callers wait for their slot, which
+ * is cheap on the virtual threads the batch tools run on.
+ */
+@Component
+public class HostRateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+
+    public HostRateLimiter() {
+        this(10, 10);
+    }
+
+    @Autowired
+    public HostRateLimiter(@Value("${weather.api.requests-per-second:10}") double requestsPerSecond,
+                           @Value("${weather.api.burst:10}") int burst) {
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        this.burstNanos = (Math.max(1, burst) - 1) * intervalNanos;
+    }
+
+    /**
+     * Blocks until a request to {@code host} may be sent.
+     */
+    public void acquire(String host) {
+        long wait = hosts.computeIfAbsent(host, h -> new Host()).reserve();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting to call " + host, e);
+            }
+        }
+    }
+
+    private final class Host {
+
+        private long nextFree = System.nanoTime();
+
+        /**
+         * Takes the next free slot and returns how long to wait for it.
+         */
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            long slot = Math.max(nextFree, now - burstNanos);
+            nextFree = slot + intervalNanos;
+            return slot - now;
+        }
+    }
+}
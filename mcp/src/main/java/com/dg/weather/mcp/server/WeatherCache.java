@@ -0,0 +1,120 @@
+package com.dg.weather.mcp.server;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+/**
+ * Caches api.weather.gov responses for as long as their {@code Cache-Control} ({@code s-maxage},
+ * {@code max-age}, less {@code Age}) or {@code Expires} header allows, or {@code weather.cache.default-ttl}
+ * when they say nothing. Concurrent requests for the same key share a single upstream call, so an
+ * agent repeating a tool call while the first is in flight does not hit the API twice. The call is
+ * made on the first caller's thread, outside the cache's locks, so loads of other keys go ahead.
+ */
+@Component
+public class WeatherCache {
+
+    private record Response(Object body, Duration ttl) {}
+
+    private final AsyncCache<String, Response> responses;
+    private final Duration defaultTtl;
+
+    public WeatherCache() {
+        this(10_000, Duration.ofMinutes(1));
+    }
+
+    @Autowired
+    public WeatherCache(@Value("${weather.cache.max-entries:10000}") long maxEntries,
+                        @Value("${weather.cache.default-ttl:60s}") Duration defaultTtl) {
+        this.defaultTtl = defaultTtl;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(Expiry.writing((String key, Response response) -> response.ttl()))
+                .buildAsync();
+    }
+
+    /**
+     * Returns the cached body for {@code key}, or fetches it and caches it for as long as the
+     * response allows.
+     */
+    public <T> T get(String key, Supplier<ResponseEntity<T>> fetch) {
+        return get(key, Duration.ZERO, fetch);
+    }
+
+    /**
+     * Like {@link #get(String, Supplier)}, but keeps the response for at least {@code minTtl}, for
+     * responses known to change far less often than the API advertises.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Duration minTtl, Supplier<ResponseEntity<T>> fetch) {
+        var loading = new CompletableFuture<Response>();
+        var response = responses.asMap().putIfAbsent(key, loading);
+        if (response == null) {
+            try {
+                var entity = fetch.get();
+                var ttl = freshness(entity.getHeaders());
+                loading.complete(new Response(entity.getBody(), ttl.compareTo(minTtl) < 0 ? minTtl : ttl));
+            } catch (RuntimeException | Error e) {
+                loading.completeExceptionally(e);
+                throw e;
+            }
+            response = loading;
+        }
+        try {
+            return (T) response.join().body();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    Duration freshness(HttpHeaders headers) {
+        Long maxAge = null;
+        Long sharedMaxAge = null;
+        for (var directive : headers.getValuesAsList(HttpHeaders.CACHE_CONTROL)) {
+            directive = directive.toLowerCase(Locale.ROOT);
+            if (directive.equals("no-store") || directive.equals("no-cache") || directive.equals("private")) {
+                return Duration.ZERO;
+            }
+            if (directive.startsWith("s-maxage=")) {
+                sharedMaxAge = seconds(directive.substring("s-maxage=".length()));
+            } else if (directive.startsWith("max-age=")) {
+                maxAge = seconds(directive.substring("max-age=".length()));
+            }
+        }
+        var seconds = sharedMaxAge != null ? sharedMaxAge : maxAge;
+        if (seconds != null) {
+            var age = seconds(headers.getFirst(HttpHeaders.AGE));
+            return Duration.ofSeconds(Math.max(0, seconds - (age == null ? 0 : age)));
+        }
+
+        long expires = headers.getExpires();
+        if (expires >= 0) {
+            long date = headers.getDate();
+            return Duration.ofMillis(Math.max(0, expires - (date >= 0 ? date : System.currentTimeMillis())));
+        }
+        return defaultTtl;
+    }
+
+    private static Long seconds(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.strip().replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -1,43 +1,98 @@
 package com.dg.weather.mcp.server;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestClient;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+/**
+ * Calls api.weather.gov through a {@link WeatherCache}. A point's forecast office and grid never
+ * move, so {@code /points} lookups are keyed by coordinates rounded to the four decimals the API
+ * resolves and kept for at least {@code weather.cache.points-ttl}; forecasts and alerts are kept as
+ * long as the API says they are fresh. Calls that miss the cache are paced per host by a
+ * {@link HostRateLimiter}.
+ */
 @Component
 public class WeatherClient {
     private static final String API_BASE_URL = "https://api.weather.gov";
     private final RestClient restClient;
+    private final ResponseErrorHandler errors = new DefaultResponseErrorHandler();
+    private final WeatherCache cache;
+    private final Duration pointsTtl;
 
     public WeatherClient() {
+        this(API_BASE_URL, new WeatherCache(), new HostRateLimiter(), Duration.ofDays(7));
+    }
+
+    @Autowired
+    public WeatherClient(@Value("${weather.api.base-url:" + API_BASE_URL + "}") String baseUrl, WeatherCache cache,
+                         HostRateLimiter rateLimiter, @Value("${weather.cache.points-ttl:7d}") Duration pointsTtl) {
         this.restClient = RestClient.builder()
-            .baseUrl(API_BASE_URL)
+            .baseUrl(baseUrl)
+            .requestInterceptor((request, body, execution) -> {
+                rateLimiter.acquire(request.getURI().getHost());
+                return execution.execute(request, body);
+            })
             .build();
+        this.cache = cache;
+        this.pointsTtl = pointsTtl;
     }
 
     public Points getPoints(double latitude, double longitude) {
-        return restClient.get()
-                .uri("/points/{latitude},{longitude}", latitude, longitude)
+        var lat = round(latitude);
+        var lon = round(longitude);
+        return cache.get("points:%s,%s".formatted(lat, lon), pointsTtl, () -> restClient.get()
+                .uri("/points/{latitude},{longitude}", lat, lon)
                 .retrieve()
-                .body(Points.class);
+                .toEntity(Points.class));
     }
 
     public Alert getAlert(String state) {
-        return this.restClient.get()
-                .uri("/alerts/active/area/%s".formatted(state))
-                .retrieve()
-                .body(Alert.class);
+        return getAlert(state, null, 0);
+    }
+
+    /**
+     * Returns the active alerts for {@code state} with at least {@code minSeverity} ({@code null} for
+     * all), at most {@code limit} of them, most severe first, when {@code limit} is positive. The
+     * response is parsed as it streams in by {@link AlertParser}.
+     */
+    public Alert getAlert(String state, Severity minSeverity, int limit) {
+        var area = state.strip().toUpperCase(Locale.ROOT);
+        var key = "alerts:%s:%s:%d".formatted(area, minSeverity, Math.max(0, limit));
+        return cache.get(key, () -> this.restClient.get()
+                .uri("/alerts/active/area/{state}", area)
+                .exchange((request, response) -> {
+                    if (errors.hasError(response)) {
+                        errors.handleError(request.getURI(), request.getMethod(), response);
+                    }
+                    return ResponseEntity.status(response.getStatusCode())
+                            .headers(response.getHeaders())
+                            .body(AlertParser.parse(response.getBody(), minSeverity, limit));
+                }));
     }
 
     public Forecast getForecastByLocation(Points points) {
-        return this.restClient.get()
-            .uri(points.properties().forecast())
+        var forecast = points.properties().forecast();
+        return cache.get("forecast:" + forecast, () -> this.restClient.get()
+            .uri(forecast)
             .retrieve()
-            .body(Forecast.class);
+            .toEntity(Forecast.class));
+    }
+
+    private static String round(double coordinate) {
+        return BigDecimal.valueOf(coordinate).setScale(4, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -78,5 +133,26 @@ public class WeatherClient {
 				String instruction) {
 		}
 	}
+
+	/**
+	 * CAP severities, least severe first.
+	 */
+	public enum Severity {
+		UNKNOWN, MINOR, MODERATE, SEVERE, EXTREME;
+
+		/**
+		 * Returns the severity named {@code name}, ignoring case, or {@link #UNKNOWN} for anything else.
+		 */
+		public static Severity of(String name) {
+			if (name != null) {
+				for (var severity : values()) {
+					if (severity.name().equalsIgnoreCase(name.strip())) {
+						return severity;
+					}
+				}
+			}
+			return UNKNOWN;
+		}
+	}
     
 }
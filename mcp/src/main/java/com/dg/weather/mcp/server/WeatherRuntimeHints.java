@@ -0,0 +1,25 @@
+package com.dg.weather.mcp.server;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import com.dg.weather.mcp.server.WeatherClient.Alert;
+import com.dg.weather.mcp.server.WeatherClient.Forecast;
+import com.dg.weather.mcp.server.WeatherClient.Points;
+import com.dg.weather.mcp.server.WeatherService.Location;
+
+/**
+ * Reflection the native image needs: Jackson binds the api.weather.gov records and the batch tool's
+ * {@link Location} argument, and the tool callbacks invoke {@link WeatherService}'s methods.
+ */
+class WeatherRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                Points.class, Forecast.class, Alert.class, Location.class);
+        hints.reflection().registerType(WeatherService.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+    }
+}
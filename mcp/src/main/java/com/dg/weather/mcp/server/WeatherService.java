@@ -1,31 +1,70 @@
 package com.dg.weather.mcp.server;
 
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.dg.weather.mcp.server.WeatherClient.Alert;
 import com.dg.weather.mcp.server.WeatherClient.Forecast;
+import com.dg.weather.mcp.server.WeatherClient.Severity;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class WeatherService {
+    private static final Logger log = LoggerFactory.getLogger(WeatherService.class);
+
     private final WeatherClient weatherClient;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final int maxBatchSize;
 
     public WeatherService(WeatherClient wc) {
+        this(wc, 8, 50);
+    }
+
+    @Autowired
+    public WeatherService(WeatherClient wc, @Value("${weather.batch.parallelism:8}") int parallelism,
+                          @Value("${weather.batch.max-size:50}") int maxBatchSize) {
         this.weatherClient = wc;
+        this.permits = new Semaphore(parallelism);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public record Location(@JsonPropertyDescription("Latitude of the location") double latitude,
+                           @JsonPropertyDescription("Longitude of the location") double longitude) {
     }
 
     @Tool(description = "Get weather alerts for a US state.")
-    public String getAlerts(@ToolParam(description = "Two-letter US state code (e.g. CA, NY)") String state) {
-        System.out.println("Calling getAlerts for " + state);
-        var alerts = weatherClient.getAlert(state);
+    public String getAlerts(@ToolParam(description = "Two-letter US state code (e.g. CA, NY)") String state,
+        @ToolParam(description = "Only alerts at least this severe: Minor, Moderate, Severe or Extreme",
+                required = false) String minSeverity,
+        @ToolParam(description = "Return at most this many alerts, most severe first", required = false)
+                Integer limit) {
+        log.debug("Calling getAlerts for {}", state);
+        var alerts = weatherClient.getAlert(state, minSeverity == null ? null : severity(minSeverity),
+                limit == null ? 0 : limit);
         
         return formatAlerts(alerts);
     }
 
+    public String getAlerts(String state) {
+        return getAlerts(state, null, null);
+    }
+
     @Tool(description = "Get weather forecast for a location.")
     public String getForecast(
         @ToolParam(description = "Latitude of the location") double latitude,
@@ -37,19 +76,85 @@ public class WeatherService {
         return formatForecast(forecast);
     }
 
+    @Tool(description = "Get weather forecasts for several locations at once.")
+    public String getForecasts(@ToolParam(description = "Locations to forecast") List<Location> locations) {
+        return fanOut(locations, location -> "Location: %s, %s%n%s".formatted(location.latitude(),
+                location.longitude(), getForecast(location.latitude(), location.longitude())));
+    }
+
+    @Tool(description = "Get weather alerts for several US states at once.")
+    public String getAlertsForStates(
+        @ToolParam(description = "Two-letter US state codes (e.g. CA, NY)") List<String> states) {
+        return fanOut(states, state -> "State: %s%n%s".formatted(state, getAlerts(state)));
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.close();
+    }
+
+    /**
+     * Runs {@code call} for every input on its own virtual thread, at most
+     * {@code weather.batch.parallelism} at a time, so a batch takes about as long as its slowest
+     * call rather than the sum of them. A failed call is reported in place of its result.
+     */
+    private <T> String fanOut(List<T> inputs, Function<T, String> call) {
+        if (inputs.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most %d items per call, got %d".formatted(maxBatchSize,
+                    inputs.size()));
+        }
+        var results = inputs.stream()
+                .map(input -> CompletableFuture.supplyAsync(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        return call.apply(input);
+                    } catch (RuntimeException e) {
+                        return "%s: failed (%s)".formatted(input, e.getMessage());
+                    } finally {
+                        permits.release();
+                    }
+                }, executor))
+                .toList();
+        return results.stream().map(CompletableFuture::join).collect(Collectors.joining("\n===\n"));
+    }
+
+    /**
+     * Writes every alert into one builder sized for the descriptions, instead of formatting each
+     * alert into its own string and joining them.
+     */
     private String formatAlerts(Alert alerts) {
-        return alerts.features().stream().map(feature -> {
-                var properties = feature.properties();
-                return 
-                        """
-                        Event: %s
-                        Area: %s
-                        Severity: %s
-                        Description: %s
-                        Instructions: %s
-                        """.formatted(properties.event(), properties.areaDesc(),
-                        properties.severity(), properties.description(), properties.instruction());
-            }).collect(Collectors.joining("\n---\n"));
+        var features = alerts.features();
+        int size = 0;
+        for (var feature : features) {
+            var properties = feature.properties();
+            size += 128 + length(properties.description()) + length(properties.instruction());
+        }
+        var text = new StringBuilder(size);
+        for (var feature : features) {
+            if (!text.isEmpty()) {
+                text.append("\n---\n");
+            }
+            var properties = feature.properties();
+            text.append("Event: ").append(properties.event())
+                .append("\nArea: ").append(properties.areaDesc())
+                .append("\nSeverity: ").append(properties.severity())
+                .append("\nDescription: ").append(properties.description())
+                .append("\nInstructions: ").append(properties.instruction())
+                .append('\n');
+        }
+        return text.toString();
+    }
+
+    private static int length(String value) {
+        return value == null ? 4 : value.length();
+    }
+
+    private static Severity severity(String name) {
+        var severity = Severity.of(name);
+        if (severity == Severity.UNKNOWN) {
+            throw new IllegalArgumentException("Unknown severity: " + name);
+        }
+        return severity;
     }
 
     private String formatForecast(Forecast forecast) {
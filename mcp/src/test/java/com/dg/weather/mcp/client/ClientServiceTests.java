@@ -0,0 +1,80 @@
+package com.dg.weather.mcp.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import io.modelcontextprotocol.spec.McpSchema.TextContent;
+import io.modelcontextprotocol.spec.McpSchema.Tool;
+
+class ClientServiceTests {
+
+    private final FakeMcpServer server = new FakeMcpServer();
+    private McpClientPool pool;
+    private ClientService service;
+
+    @BeforeEach
+    void start() {
+        pool = new McpClientPool(server::transport, 2, 64, Duration.ofSeconds(5), Duration.ofSeconds(5),
+                Duration.ofMinutes(1));
+        pool.start();
+        service = new ClientService(pool, 32);
+    }
+
+    @AfterEach
+    void stop() {
+        pool.stop();
+    }
+
+    @Test
+    void listsToolsOnceUntilTheyChange() throws Exception {
+        assertThat(service.getTools().tools()).extracting(Tool::name).containsExactly("getAlerts");
+        service.getTools();
+        assertThat(server.toolLists).hasValue(1);
+
+        server.changeTools("getAlerts", "getForecast");
+        for (int i = 0; i < 50 && service.getTools().tools().size() < 2; i++) {
+            Thread.sleep(20);
+        }
+
+        assertThat(service.getTools().tools()).extracting(Tool::name).containsExactly("getAlerts", "getForecast");
+    }
+
+    @Test
+    void pipelinesBatchCallsOverFewConnections() {
+        server.delay = Duration.ofMillis(200);
+        var states = IntStream.range(0, 20).mapToObj(i -> "S" + i).toList();
+
+        long start = System.nanoTime();
+        var alerts = service.callAlertTools(states).block();
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(alerts).containsOnlyKeys(states);
+        assertThat(alerts.keySet()).containsExactlyElementsOf(states);
+        assertThat(text(alerts.get("S7"))).isEqualTo("Alerts for S7");
+        assertThat(server.connections).hasValue(2);
+        assertThat(server.maxConcurrentCalls.get()).isEqualTo(20);
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void reportsFailedStatesInPlace() {
+        server.shutDown();
+
+        var alerts = service.callAlertTools(List.of("CA", "CA", "NY")).block();
+
+        assertThat(alerts).containsOnlyKeys("CA", "NY");
+        assertThat(alerts.values()).allSatisfy(result -> assertThat(result.isError()).isTrue());
+    }
+
+    private static String text(CallToolResult result) {
+        return ((TextContent) result.content().getFirst()).text();
+    }
+}
@@ -0,0 +1,151 @@
+package com.dg.weather.mcp.client;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import io.modelcontextprotocol.json.McpJsonMapper;
+import io.modelcontextprotocol.json.TypeRef;
+import io.modelcontextprotocol.spec.McpClientTransport;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import io.modelcontextprotocol.spec.McpSchema.Implementation;
+import io.modelcontextprotocol.spec.McpSchema.InitializeResult;
+import io.modelcontextprotocol.spec.McpSchema.JSONRPCMessage;
+import io.modelcontextprotocol.spec.McpSchema.JSONRPCNotification;
+import io.modelcontextprotocol.spec.McpSchema.JSONRPCRequest;
+import io.modelcontextprotocol.spec.McpSchema.JSONRPCResponse;
+import io.modelcontextprotocol.spec.McpSchema.ListToolsResult;
+import io.modelcontextprotocol.spec.McpSchema.ServerCapabilities;
+import io.modelcontextprotocol.spec.McpSchema.TextContent;
+import io.modelcontextprotocol.spec.McpSchema.Tool;
+import reactor.core.publisher.Mono;
+
+/**
+ * An in-process stand-in for the weather MCP server. Each {@link #transport()} is one connection;
+ * it answers {@code initialize}, {@code ping}, {@code tools/list} and {@code getAlerts} calls after
+ * {@code delay}, and can be killed to act like a server process that has exited. Changing its tools
+ * sends {@code notifications/tools/list_changed} on every open connection.
+ */
+class FakeMcpServer {
+
+    private final McpJsonMapper json = McpJsonMapper.getDefault();
+    private final Set<Transport> open = ConcurrentHashMap.newKeySet();
+    final AtomicInteger connections = new AtomicInteger();
+    final AtomicInteger toolCalls = new AtomicInteger();
+    final AtomicInteger toolLists = new AtomicInteger();
+    final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+    private final AtomicInteger concurrentCalls = new AtomicInteger();
+    volatile Duration delay = Duration.ZERO;
+    private volatile List<String> tools = List.of("getAlerts");
+    private volatile boolean down;
+
+    McpClientTransport transport() {
+        connections.incrementAndGet();
+        var transport = new Transport();
+        transport.dead = down;
+        open.add(transport);
+        return transport;
+    }
+
+    /**
+     * Kills every open connection, as if their server processes had exited.
+     */
+    void killAll() {
+        open.forEach(transport -> transport.dead = true);
+        open.clear();
+    }
+
+    /**
+     * Kills every open connection and every one opened later, as if the server could no longer start.
+     */
+    void shutDown() {
+        down = true;
+        killAll();
+    }
+
+    /**
+     * Replaces the server's tools and tells every open connection.
+     */
+    void changeTools(String... names) {
+        tools = List.of(names);
+        var notification = new JSONRPCNotification(McpSchema.JSONRPC_VERSION,
+                McpSchema.METHOD_NOTIFICATION_TOOLS_LIST_CHANGED, null);
+        open.forEach(transport -> transport.handler.apply(Mono.just(notification)).subscribe());
+    }
+
+    private Object answer(JSONRPCRequest request) {
+        return switch (request.method()) {
+            case McpSchema.METHOD_INITIALIZE -> new InitializeResult(
+                    json.convertValue(request.params(), McpSchema.InitializeRequest.class).protocolVersion(),
+                    ServerCapabilities.builder().tools(true).build(), new Implementation("weather", "test"), null);
+            case McpSchema.METHOD_PING -> Map.of();
+            case McpSchema.METHOD_TOOLS_LIST -> {
+                toolLists.incrementAndGet();
+                yield new ListToolsResult(tools.stream().map(name -> Tool.builder().name(name)
+                        .inputSchema(json, """
+                                {"type": "object", "properties": {"state": {"type": "string"}}}
+                                """).build()).toList(), null);
+            }
+            case McpSchema.METHOD_TOOLS_CALL -> {
+                var call = json.convertValue(request.params(), CallToolRequest.class);
+                yield new CallToolResult(List.of(new TextContent("Alerts for " + call.arguments().get("state"))),
+                        false);
+            }
+            default -> throw new IllegalArgumentException(request.method());
+        };
+    }
+
+    private final class Transport implements McpClientTransport {
+
+        private volatile Function<Mono<JSONRPCMessage>, Mono<JSONRPCMessage>> handler;
+        private volatile boolean dead;
+
+        @Override
+        public Mono<Void> connect(Function<Mono<JSONRPCMessage>, Mono<JSONRPCMessage>> handler) {
+            this.handler = handler;
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> sendMessage(JSONRPCMessage message) {
+            if (dead) {
+                return Mono.error(new IOException("Server process exited"));
+            }
+            if (message instanceof JSONRPCRequest request) {
+                boolean toolCall = request.method().equals(McpSchema.METHOD_TOOLS_CALL);
+                if (toolCall) {
+                    toolCalls.incrementAndGet();
+                    maxConcurrentCalls.accumulateAndGet(concurrentCalls.incrementAndGet(), Math::max);
+                }
+                var response = new JSONRPCResponse(McpSchema.JSONRPC_VERSION, request.id(), answer(request), null);
+                Mono.delay(delay)
+                        .doOnNext(tick -> {
+                            if (toolCall) {
+                                concurrentCalls.decrementAndGet();
+                            }
+                        })
+                        .then(handler.apply(Mono.just(response)))
+                        .subscribe();
+            }
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> closeGracefully() {
+            open.remove(this);
+            return Mono.empty();
+        }
+
+        @Override
+        public <T> T unmarshalFrom(Object data, TypeRef<T> type) {
+            return json.convertValue(data, type);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.dg.weather.mcp.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import io.modelcontextprotocol.spec.McpSchema.TextContent;
+import reactor.core.publisher.Flux;
+
+class McpClientPoolTests {
+
+    private final FakeMcpServer server = new FakeMcpServer();
+    private McpClientPool pool;
+
+    @AfterEach
+    void stop() {
+        pool.stop();
+    }
+
+    @Test
+    void opensWarmConnectionsAtStartup() {
+        pool = start(4, 64, Duration.ofMinutes(1));
+
+        assertThat(pool.available()).isEqualTo(4);
+        assertThat(server.connections).hasValue(4);
+        assertThat(text(pool.execute(client -> client.callTool(alerts("FL"))))).isEqualTo("Alerts for FL");
+    }
+
+    @Test
+    void capsRequestsInFlight() throws Exception {
+        server.delay = Duration.ofMillis(100);
+        pool = start(2, 3, Duration.ofMinutes(1));
+
+        try (var callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            var calls = new ArrayList<CompletableFuture<CallToolResult>>();
+            for (int i = 0; i < 12; i++) {
+                calls.add(CompletableFuture.supplyAsync(() -> pool.execute(client -> client.callTool(alerts("NY"))),
+                        callers));
+            }
+            for (var call : calls) {
+                assertThat(text(call.get())).isEqualTo("Alerts for NY");
+            }
+        }
+
+        assertThat(server.toolCalls).hasValue(12);
+        assertThat(server.maxConcurrentCalls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void capsSubmittedRequestsInFlight() {
+        server.delay = Duration.ofMillis(100);
+        pool = start(2, 3, Duration.ofMinutes(1));
+
+        var results = Flux.range(0, 12)
+                .flatMap(i -> pool.submit(client -> client.callTool(alerts("NY"))), 12)
+                .collectList()
+                .block();
+
+        assertThat(results).hasSize(12).allSatisfy(result -> assertThat(text(result)).isEqualTo("Alerts for NY"));
+        assertThat(server.maxConcurrentCalls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void releasesConnectionWhenRequestThrows() {
+        pool = start(2, 64, Duration.ofMinutes(1));
+
+        assertThatThrownBy(() -> pool.<CallToolResult>submit(client -> {
+            throw new NullPointerException("state");
+        }).block()).isInstanceOf(NullPointerException.class);
+        assertThatThrownBy(() -> pool.<CallToolResult>execute(client -> {
+            throw new IllegalArgumentException("state");
+        })).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(pool.inFlight()).isZero();
+        assertThat(text(pool.execute(client -> client.callTool(alerts("FL"))))).isEqualTo("Alerts for FL");
+        assertThat(pool.inFlight()).isZero();
+    }
+
+    @Test
+    void reconnectsAfterServerDies() throws Exception {
+        pool = start(2, 64, Duration.ofMillis(100));
+        server.killAll();
+
+        assertThatThrownBy(() -> pool.execute(client -> client.callTool(alerts("CA"))))
+                .isInstanceOf(RuntimeException.class);
+        for (int i = 0; i < 50 && (server.connections.get() < 4 || pool.available() < 2); i++) {
+            Thread.sleep(20);
+        }
+
+        assertThat(server.connections).hasValue(4);
+        assertThat(pool.available()).isEqualTo(2);
+        assertThat(text(pool.execute(client -> client.callTool(alerts("CA"))))).isEqualTo("Alerts for CA");
+    }
+
+    private McpClientPool start(int poolSize, int maxConcurrency, Duration healthCheckInterval) {
+        var started = new McpClientPool(server::transport, poolSize, maxConcurrency, Duration.ofSeconds(5),
+                Duration.ofSeconds(5), healthCheckInterval);
+        started.start();
+        return started;
+    }
+
+    private static CallToolRequest alerts(String state) {
+        return new CallToolRequest("getAlerts", Map.of("state", state));
+    }
+
+    private static String text(CallToolResult result) {
+        return ((TextContent) result.content().getFirst()).text();
+    }
+}
@@ -0,0 +1,82 @@
+package com.dg.weather.mcp.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.dg.weather.mcp.server.WeatherClient.Alert;
+import com.dg.weather.mcp.server.WeatherClient.Alert.Feature;
+import com.dg.weather.mcp.server.WeatherClient.Alert.Properties;
+import com.dg.weather.mcp.server.WeatherClient.Severity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class AlertParserTests {
+
+    private static final String ALERTS = """
+            {
+              "@context": ["https://geojson.org/geojson-ld/geojson-context.jsonld", {"@version": "1.1"}],
+              "type": "FeatureCollection",
+              "features": [
+                {"id": "a", "type": "Feature",
+                 "geometry": {"type": "Polygon", "coordinates": [[[-80.1, 25.7], [-80.2, 25.8], [-80.1, 25.7]]]},
+                 "properties": {"event": "Heat Advisory", "areaDesc": "Miami-Dade", "severity": "Moderate",
+                   "references": [{"id": "x"}], "parameters": {"NWSheadline": ["HOT"]},
+                   "description": "Hot.", "instruction": null}},
+                {"id": "b", "type": "Feature", "geometry": null,
+                 "properties": {"event": "Hurricane Warning", "areaDesc": "Keys", "severity": "Extreme",
+                   "description": "Storm.", "instruction": "Evacuate."}},
+                {"id": "c", "type": "Feature", "geometry": null,
+                 "properties": {"event": "Rip Current Statement", "areaDesc": "Palm Beach", "severity": "Minor",
+                   "description": "Currents.", "instruction": "Stay out."}},
+                {"id": "d", "type": "Feature", "geometry": null,
+                 "properties": {"event": "Flood Warning", "areaDesc": "Broward", "severity": "Severe",
+                   "description": "Water.", "instruction": "Move up."}},
+                {"id": "e", "type": "Feature", "geometry": null,
+                 "properties": {"event": "Tornado Warning", "areaDesc": "Collier", "severity": "Extreme",
+                   "description": "Wind.", "instruction": "Shelter."}}
+              ],
+              "title": "Current watches, warnings, and advisories",
+              "updated": "2025-01-02T03:04:05+00:00"
+            }
+            """;
+
+    @Test
+    void readsTheSameAlertsAsDataBinding() throws Exception {
+        var bound = new ObjectMapper().readValue(ALERTS, Alert.class);
+
+        assertThat(parse(null, 0)).isEqualTo(bound);
+    }
+
+    @Test
+    void filtersBySeverity() throws Exception {
+        assertThat(events(parse(Severity.SEVERE, 0)))
+                .containsExactly("Hurricane Warning", "Flood Warning", "Tornado Warning");
+    }
+
+    @Test
+    void keepsTheMostSevereAlerts() throws Exception {
+        assertThat(events(parse(null, 3))).containsExactly("Hurricane Warning", "Tornado Warning", "Flood Warning");
+        assertThat(events(parse(Severity.MODERATE, 10)))
+                .containsExactly("Hurricane Warning", "Tornado Warning", "Flood Warning", "Heat Advisory");
+    }
+
+    @Test
+    void readsResponsesWithoutFeatures() throws Exception {
+        var alert = AlertParser.parse(new ByteArrayInputStream("{\"features\": []}".getBytes()), null, 5);
+
+        assertThat(alert.features()).isEmpty();
+    }
+
+    private static Alert parse(Severity minSeverity, int limit) throws Exception {
+        return AlertParser.parse(new ByteArrayInputStream(ALERTS.getBytes(StandardCharsets.UTF_8)), minSeverity,
+                limit);
+    }
+
+    private static List<String> events(Alert alert) {
+        return alert.features().stream().map(Feature::properties).map(Properties::event).toList();
+    }
+}
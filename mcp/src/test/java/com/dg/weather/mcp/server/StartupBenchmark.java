@@ -0,0 +1,137 @@
+package com.dg.weather.mcp.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares how quickly the weather MCP server answers its first request over stdio, the latency a
+ * {@code StdioClientTransport} client pays for every server it launches, and how much memory the
+ * server holds afterwards. Each variant is started {@code runs} times; startup is measured from
+ * launch to the {@code initialize} response, RSS is read from {@code /proc} after a
+ * {@code tools/list} (Linux only). Variants whose build output is missing are skipped:
+ * <ul>
+ * <li>{@code jvm}: the plain jar, from {@code mvn package}</li>
+ * <li>{@code cds}: the extracted jar with Spring AOT and the AOT cache or CDS archive in
+ * {@code target/cds}, from {@code mvn -Pcds package}</li>
+ * <li>{@code native}: {@code target/weather.mcp}, from {@code mvn -Pnative native:compile}</li>
+ * </ul>
+ *
+ * <p>Run from the module directory with
+ * {@code java -cp target/test-classes com.dg.weather.mcp.server.StartupBenchmark [runs]}.
+ */
+public class StartupBenchmark {
+
+    private static final String JAR = "weather.mcp-0.0.1-SNAPSHOT.jar";
+    private static final List<String> SERVER_OPTIONS = List.of(
+            "-Dspring.ai.mcp.server.stdio=true",
+            "-Dspring.main.web-application-type=none",
+            "-Dspring.main.banner-mode=off",
+            "-Dlogging.pattern.console=");
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        var java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+        System.out.printf("%-8s %10s %10s %10s%n", "variant", "p50", "min", "rss");
+        var jar = Path.of("target", JAR);
+        if (Files.exists(jar)) {
+            run("jvm", runs, command(List.of(java), List.of("-jar", jar.toString())));
+        }
+        var cds = Path.of("target", "cds");
+        var archive = archive(cds);
+        if (archive != null) {
+            var option = archive.toString().endsWith(".aot") ? "-XX:AOTCache=" : "-XX:SharedArchiveFile=";
+            run("cds", runs, command(List.of(java, option + archive, "-Dspring.aot.enabled=true"),
+                    List.of("-jar", cds.resolve(JAR).toString())));
+        }
+        var nativeImage = Path.of("target", "weather.mcp");
+        if (Files.isExecutable(nativeImage)) {
+            run("native", runs, command(List.of(nativeImage.toString()), List.of()));
+        }
+    }
+
+    private static Path archive(Path cds) throws IOException {
+        if (!Files.isDirectory(cds)) {
+            return null;
+        }
+        try (var files = Files.list(cds)) {
+            return files.filter(file -> file.toString().endsWith(".aot") || file.toString().endsWith(".jsa"))
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
+    private static List<String> command(List<String> launcher, List<String> target) {
+        var command = new ArrayList<>(launcher);
+        command.addAll(SERVER_OPTIONS);
+        command.addAll(target);
+        return command;
+    }
+
+    private static void run(String variant, int runs, List<String> command) throws Exception {
+        var startups = new long[runs];
+        long rss = 0;
+        for (int i = 0; i < runs; i++) {
+            var process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            try (var in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                 var out = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8)) {
+                long start = System.nanoTime();
+                send(out, """
+                        {"jsonrpc":"2.0","id":1,"method":"initialize","params":{"protocolVersion":"2025-06-18",\
+                        "capabilities":{},"clientInfo":{"name":"startup-benchmark","version":"1"}}}""");
+                await(in, 1);
+                startups[i] = System.nanoTime() - start;
+
+                send(out, """
+                        {"jsonrpc":"2.0","method":"notifications/initialized"}""");
+                send(out, """
+                        {"jsonrpc":"2.0","id":2,"method":"tools/list"}""");
+                await(in, 2);
+                rss = Math.max(rss, rssKilobytes(process.pid()));
+            } finally {
+                process.destroy();
+                process.waitFor();
+            }
+        }
+        Arrays.sort(startups);
+        System.out.printf("%-8s %8.0fms %8.0fms %8.0fMB%n", variant, startups[runs / 2] / 1e6, startups[0] / 1e6,
+                rss / 1024.0);
+    }
+
+    private static void send(Writer out, String message) throws IOException {
+        out.write(message);
+        out.write('\n');
+        out.flush();
+    }
+
+    private static void await(BufferedReader in, int id) throws IOException {
+        for (var line = in.readLine(); line != null; line = in.readLine()) {
+            if (line.startsWith("{") && line.contains("\"id\":" + id + ",")) {
+                return;
+            }
+        }
+        throw new IOException("Server exited before answering request " + id);
+    }
+
+    private static long rssKilobytes(long pid) throws IOException {
+        var status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return 0;
+        }
+        for (var line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return 0;
+    }
+}
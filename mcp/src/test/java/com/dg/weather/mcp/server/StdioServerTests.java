@@ -0,0 +1,72 @@
+package com.dg.weather.mcp.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.modelcontextprotocol.client.McpClient;
+import io.modelcontextprotocol.client.McpSyncClient;
+import io.modelcontextprotocol.client.transport.ServerParameters;
+import io.modelcontextprotocol.client.transport.StdioClientTransport;
+import io.modelcontextprotocol.json.McpJsonMapper;
+import io.modelcontextprotocol.spec.McpSchema.CallToolRequest;
+import io.modelcontextprotocol.spec.McpSchema.TextContent;
+
+/**
+ * Launches the server as a child process and talks to it over stdio, the way the client pool does,
+ * so that anything the server writes to stdout besides JSON-RPC breaks these tests.
+ */
+class StdioServerTests {
+
+    private StubWeatherApi api;
+    private McpSyncClient client;
+
+    @BeforeEach
+    void start() throws Exception {
+        api = new StubWeatherApi();
+        var java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        var server = ServerParameters.builder(java)
+                .args(List.of("-cp", System.getProperty("java.class.path"),
+                        "-Dspring.ai.mcp.server.stdio=true",
+                        "-Dspring.main.web-application-type=none",
+                        "-Dspring.main.banner-mode=off",
+                        "-Dlogging.pattern.console=",
+                        "-Dweather.api.base-url=" + api.baseUrl(),
+                        Application.class.getName()))
+                .build();
+        client = McpClient.sync(new StdioClientTransport(server, McpJsonMapper.createDefault()))
+                .initializationTimeout(Duration.ofMinutes(2))
+                .requestTimeout(Duration.ofSeconds(30))
+                .build();
+        client.initialize();
+    }
+
+    @AfterEach
+    void stop() {
+        if (client != null) {
+            client.closeGracefully();
+        }
+        api.close();
+    }
+
+    @Test
+    void answersRepeatedToolCallsOnOneConnection() {
+        assertThat(client.listTools().tools()).extracting("name").contains("getAlerts", "getForecast");
+
+        for (var state : List.of("FL", "NY", "FL")) {
+            var result = client.callTool(new CallToolRequest("getAlerts", Map.of("state", state)));
+            assertThat(((TextContent) result.content().getFirst()).text()).contains("Flood Warning");
+        }
+        var forecast = client.callTool(new CallToolRequest("getForecast",
+                Map.of("latitude", 47.6062, "longitude", -122.3321)));
+        assertThat(((TextContent) forecast.content().getFirst()).text()).contains("51");
+        client.ping();
+    }
+}
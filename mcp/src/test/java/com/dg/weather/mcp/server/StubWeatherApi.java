@@ -0,0 +1,103 @@
+package com.dg.weather.mcp.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.http.HttpHeaders;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local stand-in for api.weather.gov answering {@code /points}, the forecast it points to and
+ * {@code /alerts/active/area/{state}} with small canned bodies. It counts the requests per path and
+ * can delay every response, send a {@code Cache-Control} header per path or fail a path with 503.
+ */
+class StubWeatherApi implements AutoCloseable {
+
+    private final HttpServer server;
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+    private final Map<String, String> cacheControl = new ConcurrentHashMap<>();
+    private final Set<String> failing = ConcurrentHashMap.newKeySet();
+    private volatile long delayMillis;
+
+    StubWeatherApi() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    int hits(String path) {
+        return hits.getOrDefault(path, new AtomicInteger()).get();
+    }
+
+    void cacheControl(String path, String value) {
+        cacheControl.put(path, value);
+    }
+
+    void fail(String path) {
+        failing.add(path);
+    }
+
+    void delay(long millis) {
+        delayMillis = millis;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        var path = exchange.getRequestURI().getPath();
+        hits.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failing.contains(path)) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+
+        String body;
+        if (path.startsWith("/points/")) {
+            var point = path.substring("/points/".length());
+            body = """
+                    {"properties": {"forecast": "%s/gridpoints/SEW/%s/forecast"}}
+                    """.formatted(baseUrl(), point);
+        } else if (path.startsWith("/gridpoints/")) {
+            body = """
+                    {"properties": {"periods": [{"number": 1, "name": "Tonight", "temperature": 51}]}}
+                    """;
+        } else {
+            body = """
+                    {"features": [{"properties": {"event": "Flood Warning", "severity": "Severe"}}]}
+                    """;
+        }
+
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set(HttpHeaders.CONTENT_TYPE, "application/geo+json");
+        if (cacheControl.containsKey(path)) {
+            exchange.getResponseHeaders().set(HttpHeaders.CACHE_CONTROL, cacheControl.get(path));
+        }
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (var out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
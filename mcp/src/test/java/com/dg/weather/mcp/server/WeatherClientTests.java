@@ -0,0 +1,84 @@
+package com.dg.weather.mcp.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class WeatherClientTests {
+
+    private StubWeatherApi api;
+    private WeatherClient client;
+
+    @BeforeEach
+    void start() throws Exception {
+        api = new StubWeatherApi();
+        client = new WeatherClient(api.baseUrl(), new WeatherCache(100, Duration.ofMinutes(1)),
+                new HostRateLimiter(1000, 100), Duration.ofDays(7));
+    }
+
+    @AfterEach
+    void stop() {
+        api.close();
+    }
+
+    @Test
+    void cachesPointsByRoundedCoordinates() {
+        var first = client.getPoints(47.60621, -122.33209);
+        var second = client.getPoints(47.606204, -122.332091);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(api.hits("/points/47.6062,-122.3321")).isEqualTo(1);
+    }
+
+    @Test
+    void honorsCacheControl() {
+        api.cacheControl("/alerts/active/area/FL", "public, max-age=60");
+        api.cacheControl("/alerts/active/area/CA", "no-cache");
+
+        client.getAlert("FL");
+        client.getAlert("fl");
+        client.getAlert("CA");
+        client.getAlert("CA");
+
+        assertThat(api.hits("/alerts/active/area/FL")).isEqualTo(1);
+        assertThat(api.hits("/alerts/active/area/CA")).isEqualTo(2);
+    }
+
+    @Test
+    void reusesForecastsUntilExpired() throws Exception {
+        api.cacheControl("/gridpoints/SEW/47.6062,-122.3321/forecast", "max-age=1");
+        var points = client.getPoints(47.6062, -122.3321);
+
+        var forecast = client.getForecastByLocation(points);
+        client.getForecastByLocation(points);
+        Thread.sleep(1100);
+        client.getForecastByLocation(points);
+
+        assertThat(forecast.properties().periods()).extracting(WeatherClient.Forecast.Period::temperature)
+                .containsExactly(51);
+        assertThat(api.hits("/gridpoints/SEW/47.6062,-122.3321/forecast")).isEqualTo(2);
+    }
+
+    @Test
+    void coalescesConcurrentRequests() throws Exception {
+        api.delay(200);
+        try (var callers = Executors.newFixedThreadPool(8)) {
+            var calls = new ArrayList<CompletableFuture<WeatherClient.Alert>>();
+            for (int i = 0; i < 8; i++) {
+                calls.add(CompletableFuture.supplyAsync(() -> client.getAlert("NY"), callers));
+            }
+            for (var call : calls) {
+                assertThat(call.get().features()).hasSize(1);
+            }
+        }
+
+        assertThat(api.hits("/alerts/active/area/NY")).isEqualTo(1);
+    }
+}
@@ -0,0 +1,31 @@
+package com.dg.weather.mcp.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import com.dg.weather.mcp.server.WeatherClient.Alert;
+import com.dg.weather.mcp.server.WeatherClient.Forecast;
+import com.dg.weather.mcp.server.WeatherClient.Points;
+import com.dg.weather.mcp.server.WeatherService.Location;
+
+class WeatherRuntimeHintsTests {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @Test
+    void registersBoundRecordsAndTools() throws Exception {
+        new WeatherRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        for (var type : new Class<?>[] { Points.class, Points.Props.class, Forecast.Period.class,
+                Alert.Feature.class, Alert.Properties.class, Location.class }) {
+            assertThat(RuntimeHintsPredicates.reflection().onType(type)).as(type.getName()).accepts(hints);
+        }
+        assertThat(RuntimeHintsPredicates.reflection()
+                .onMethod(WeatherService.class.getMethod("getForecasts", List.class))).accepts(hints);
+    }
+}
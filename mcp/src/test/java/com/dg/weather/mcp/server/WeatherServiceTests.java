@@ -0,0 +1,73 @@
+package com.dg.weather.mcp.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.dg.weather.mcp.server.WeatherService.Location;
+
+class WeatherServiceTests {
+
+    private StubWeatherApi api;
+    private WeatherService service;
+
+    @BeforeEach
+    void start() throws Exception {
+        api = new StubWeatherApi();
+        var client = new WeatherClient(api.baseUrl(), new WeatherCache(100, Duration.ofMinutes(1)),
+                new HostRateLimiter(1000, 100), Duration.ofDays(7));
+        service = new WeatherService(client, 8, 50);
+    }
+
+    @AfterEach
+    void stop() {
+        service.stop();
+        api.close();
+    }
+
+    @Test
+    void fetchesForecastsConcurrently() {
+        api.delay(200);
+        var locations = IntStream.range(0, 8).mapToObj(i -> new Location(40 + i, -100)).toList();
+
+        long start = System.nanoTime();
+        var forecasts = service.getForecasts(locations);
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        // two sequential calls per location, all locations at once
+        assertThat(elapsed).isLessThan(Duration.ofMillis(1200));
+        assertThat(forecasts.split("\n===\n")).hasSize(8).allSatisfy(forecast ->
+                assertThat(forecast).contains("Temperature: 51"));
+        assertThat(forecasts).startsWith("Location: 40.0, -100.0");
+    }
+
+    @Test
+    void reportsFailedItemsInPlace() {
+        api.fail("/alerts/active/area/ZZ");
+
+        var alerts = service.getAlertsForStates(List.of("CA", "ZZ", "NY")).split("\n===\n");
+
+        assertThat(alerts).hasSize(3);
+        assertThat(alerts[0]).startsWith("State: CA\nEvent: Flood Warning");
+        assertThat(alerts[1]).startsWith("ZZ: failed (503");
+        assertThat(alerts[2]).startsWith("State: NY\nEvent: Flood Warning");
+    }
+
+    @Test
+    void limitsRequestRate() {
+        var limiter = new HostRateLimiter(20, 1);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 11; i++) {
+            limiter.acquire("api.weather.gov");
+        }
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(450));
+    }
+}
@@ -1,10 +1,14 @@
 package com.dg.prediction.demo;
 
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import reactor.core.publisher.Flux;
+
 @CrossOrigin(origins = "*")
 @RestController
 public class ChatController {
@@ -19,8 +23,23 @@ public class ChatController {
         var prediction = chatService.generatePrediction(predictionRequest.text());
         return new PredictionResponse(prediction);
     }
+
+    // One JSON object per line, flushed as each token arrives. JSON rather than SSE so leading
+    // spaces and newlines in tokens survive.
+    @PostMapping(path = "/api/chat/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PredictionChunk> streamTextPrediction(@RequestBody PredictionRequest predictionRequest) {
+        return chatService.streamPrediction(predictionRequest.text())
+            .map(PredictionChunk::new);
+    }
+
+    @GetMapping("/api/chat/cache")
+    public PredictionCache.Stats getCacheStats() {
+        return chatService.cacheStats();
+    }
     
     public record PredictionRequest(String text) {}
 
     public record PredictionResponse(String prediction) {}
+
+    public record PredictionChunk(String token) {}
 }
@@ -5,23 +5,57 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import reactor.core.publisher.Flux;
+
 @Service
 public class ChatService {
 
     private final ChatClient chatClient;
+    private final PredictionCache predictionCache;
 
     public ChatService(ChatClient.Builder chatClientBuilder, 
-        @Value("classpath:/prompts/system-message.st") Resource systemResource) {
+        @Value("classpath:/prompts/system-message.st") Resource systemResource,
+        PredictionCache predictionCache) {
         this.chatClient = chatClientBuilder
                             .defaultSystem(systemResource)
                             .build();
+        this.predictionCache = predictionCache;
     }
 
     public String generatePrediction(String text) {
-        return chatClient
+        var cached = predictionCache.lookup(text);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        var prediction = chatClient
             .prompt(text)
             .call()
             .content();
+        predictionCache.put(text, prediction);
+        return prediction;
+    }
+
+    // Cancelling the returned Flux cancels the model request, so a prediction the user has typed
+    // past stops being generated (and billed) as soon as the client goes away. Only predictions
+    // that streamed to the end are cached.
+    public Flux<String> streamPrediction(String text) {
+        var cached = predictionCache.lookup(text);
+        if (cached.isPresent()) {
+            return Flux.just(cached.get());
+        }
+        return Flux.defer(() -> {
+            var prediction = new StringBuilder();
+            return chatClient
+                .prompt(text)
+                .stream()
+                .content()
+                .doOnNext(prediction::append)
+                .doOnComplete(() -> predictionCache.put(text, prediction.toString()));
+        });
+    }
+
+    public PredictionCache.Stats cacheStats() {
+        return predictionCache.stats();
     }
     
 }
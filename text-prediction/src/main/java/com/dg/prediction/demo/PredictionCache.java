@@ -0,0 +1,291 @@
+package com.dg.prediction.demo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers the predictions made for earlier inputs so that typing along a prediction does not
+ * ask the model again. Inputs are compared with whitespace runs collapsed and case ignored. When
+ * the new input extends an earlier one and the extra characters match the start of its
+ * prediction, the rest of that prediction is served from here, exactly as the model wrote it.
+ *
+ * <p>Inputs are indexed in a character trie, so finding every cached input that is a prefix of
+ * the new one is a single walk down its characters. Entries are evicted least recently used first
+ * once the estimated size of the cached strings and trie nodes exceeds
+ * {@code prediction.cache.max-bytes}.
+ */
+@Component
+public class PredictionCache {
+
+    // Rough heap cost of a trie node with its two small arrays, and of an entry with its map slot.
+    private static final int NODE_BYTES = 80;
+    private static final int ENTRY_BYTES = 128;
+
+    public record Stats(long hits, long prefixHits, long misses, long evictions, int entries, long nodes,
+                        long bytes, double hitRate) {}
+
+    private record Entry(String key, String prediction) {
+
+        long bytes() {
+            return ENTRY_BYTES + 2L * (key.length() + prediction.length());
+        }
+    }
+
+    private final long maxBytes;
+    private final Node root = new Node();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long entryBytes;
+    private long nodes;
+    private long hits;
+    private long prefixHits;
+    private long misses;
+    private long evictions;
+
+    public PredictionCache(@Value("${prediction.cache.max-bytes:2097152}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns what is left to type of a cached prediction that {@code text} is on its way to, or
+     * empty if there is none.
+     */
+    public synchronized Optional<String> lookup(String text) {
+        var input = normalize(text);
+        if (input.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // Cached inputs that are prefixes of this one, shortest first.
+        var candidates = new ArrayList<Entry>();
+        var node = root;
+        for (int i = 0; i < input.length() && node != null; i++) {
+            node = node.child(Character.toLowerCase(input.charAt(i)));
+            if (node != null && node.entry != null) {
+                candidates.add(node.entry);
+            }
+        }
+
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            var entry = candidates.get(i);
+            var rest = remaining(entry, input.substring(entry.key().length()));
+            if (rest != null) {
+                entries.get(entry.key());
+                if (entry.key().length() == input.length()) {
+                    hits++;
+                } else {
+                    prefixHits++;
+                }
+                return Optional.of(rest);
+            }
+        }
+        misses++;
+        return Optional.empty();
+    }
+
+    /**
+     * Caches {@code prediction} as the continuation of {@code text}.
+     */
+    public synchronized void put(String text, String prediction) {
+        if (prediction == null || prediction.isBlank()) {
+            return;
+        }
+        var input = normalize(text);
+        if (input.isEmpty()) {
+            return;
+        }
+        var entry = new Entry(lowerCase(input), prediction);
+        if (entry.bytes() + (long) NODE_BYTES * entry.key().length() > maxBytes) {
+            return;
+        }
+
+        var previous = entries.put(entry.key(), entry);
+        if (previous != null) {
+            entryBytes -= previous.bytes();
+        }
+        entryBytes += entry.bytes();
+        var node = root;
+        for (int i = 0; i < entry.key().length(); i++) {
+            var child = node.child(entry.key().charAt(i));
+            if (child == null) {
+                child = node.add(entry.key().charAt(i));
+                nodes++;
+            }
+            node = child;
+        }
+        node.entry = entry;
+
+        var eldest = entries.values().iterator();
+        while (bytes() > maxBytes && eldest.hasNext()) {
+            var evicted = eldest.next();
+            eldest.remove();
+            entryBytes -= evicted.bytes();
+            evictions++;
+            unlink(evicted.key());
+        }
+    }
+
+    public synchronized Stats stats() {
+        long lookups = hits + prefixHits + misses;
+        double hitRate = lookups == 0 ? 0 : (double) (hits + prefixHits) / lookups;
+        return new Stats(hits, prefixHits, misses, evictions, entries.size(), nodes, bytes(), hitRate);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        Arrays.fill(root.children, null);
+        root.size = 0;
+        entryBytes = 0;
+        nodes = 0;
+        hits = 0;
+        prefixHits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    private long bytes() {
+        return entryBytes + nodes * NODE_BYTES;
+    }
+
+    /**
+     * Returns the part of the entry's prediction after {@code typed}, the normalized text typed
+     * past the entry's input, or {@code null} if the prediction does not start with it. Whitespace
+     * runs in the prediction match a single typed space, as in {@link #normalize(String)}.
+     */
+    private static String remaining(Entry entry, String typed) {
+        var prediction = entry.prediction();
+        if (typed.isEmpty()) {
+            return prediction;
+        }
+        int i = 0;
+        // A space ending the input and whitespace starting the prediction were typed as one space.
+        if (entry.key().endsWith(" ")) {
+            i = skipWhitespace(prediction, i);
+        }
+        for (int j = 0; j < typed.length(); j++) {
+            char c = typed.charAt(j);
+            if (c == ' ') {
+                if (i == prediction.length() || !Character.isWhitespace(prediction.charAt(i))) {
+                    return null;
+                }
+                i = skipWhitespace(prediction, i);
+            } else {
+                if (i == prediction.length() || Character.isWhitespace(prediction.charAt(i))
+                        || Character.toLowerCase(prediction.charAt(i)) != Character.toLowerCase(c)) {
+                    return null;
+                }
+                i++;
+            }
+        }
+        return i < prediction.length() ? prediction.substring(i) : null;
+    }
+
+    private static int skipWhitespace(String text, int from) {
+        while (from < text.length() && Character.isWhitespace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Removes {@code key} from the trie, dropping the nodes that no longer lead to an entry.
+     */
+    private void unlink(String key) {
+        var path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].child(key.charAt(i));
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+        path[key.length()].entry = null;
+        for (int i = key.length(); i > 0 && path[i].entry == null && path[i].size == 0; i--) {
+            path[i - 1].remove(key.charAt(i - 1));
+            nodes--;
+        }
+    }
+
+    /**
+     * Strips leading whitespace and collapses each run of whitespace into a single space, so that
+     * stray double spaces or a pasted newline do not defeat the cache.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        var normalized = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = normalized.length() > 0;
+            } else {
+                if (space) {
+                    normalized.append(' ');
+                    space = false;
+                }
+                normalized.append(c);
+            }
+        }
+        if (space) {
+            normalized.append(' ');
+        }
+        return normalized.toString();
+    }
+
+    private static String lowerCase(String text) {
+        var chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * A trie node with its children in small parallel arrays; most nodes have one or two.
+     */
+    private static final class Node {
+
+        private char[] labels = new char[2];
+        private Node[] children = new Node[2];
+        private int size;
+        private Entry entry;
+
+        Node child(char label) {
+            for (int i = 0; i < size; i++) {
+                if (labels[i] == label) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node add(char label) {
+            if (size == labels.length) {
+                labels = Arrays.copyOf(labels, size * 2);
+                children = Arrays.copyOf(children, size * 2);
+            }
+            var child = new Node();
+            labels[size] = label;
+            children[size++] = child;
+            return child;
+        }
+
+        void remove(char label) {
+            for (int i = 0; i < size; i++) {
+                if (labels[i] == label) {
+                    size--;
+                    labels[i] = labels[size];
+                    children[i] = children[size];
+                    children[size] = null;
+                    return;
+                }
+            }
+        }
+    }
+}
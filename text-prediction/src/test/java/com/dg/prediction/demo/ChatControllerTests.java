@@ -0,0 +1,122 @@
+package com.dg.prediction.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "spring.ai.model.chat=none")
+class ChatControllerTests {
+
+    @TestConfiguration
+    static class StubModelConfig {
+
+        @Bean
+        StubChatModel chatModel() {
+            return new StubChatModel();
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private StubChatModel model;
+
+    @Autowired
+    private PredictionCache predictionCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void reset() {
+        model.reset();
+        predictionCache.clear();
+        model.tokens(" to", " buy", " a", " new", " car");
+        model.delay(Duration.ofMillis(20));
+    }
+
+    @Test
+    void returnsWholePrediction() throws Exception {
+        var response = http.send(post("/api/chat/"), HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(objectMapper.readTree(response.body()).get("prediction").asText()).isEqualTo(" to buy a new car");
+    }
+
+    @Test
+    void streamsOneTokenPerLine() throws Exception {
+        model.tokens(" to", " buy", "\n", " a car");
+
+        var response = http.send(post("/api/chat/stream"), HttpResponse.BodyHandlers.ofLines());
+
+        assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(
+            type -> assertThat(type).startsWith("application/x-ndjson"));
+        assertThat(response.body().map(this::token).toList()).containsExactly(" to", " buy", "\n", " a car");
+        assertThat(model.streams).hasValue(1);
+        assertThat(model.calls).hasValue(0);
+    }
+
+    @Test
+    void flushesFirstTokenBeforeTheRestAreGenerated() throws Exception {
+        model.delay(Duration.ofMillis(500));
+
+        long start = System.nanoTime();
+        var response = http.send(post("/api/chat/stream"), HttpResponse.BodyHandlers.ofInputStream());
+        try (var lines = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            assertThat(token(lines.readLine())).isEqualTo(" to");
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(2000));
+        }
+    }
+
+    @Test
+    void cancelsModelStreamWhenClientDisconnects() throws Exception {
+        model.delay(Duration.ofMillis(200));
+
+        var response = http.send(post("/api/chat/stream"), HttpResponse.BodyHandlers.ofInputStream());
+        try (var lines = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            assertThat(token(lines.readLine())).isEqualTo(" to");
+        }
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (model.cancellations.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(model.cancellations).hasValue(1);
+    }
+
+    private HttpRequest post(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"text\":\"I would like\"}"))
+            .build();
+    }
+
+    private String token(String line) {
+        try {
+            return objectMapper.readTree(line).get("token").asText();
+        } catch (Exception e) {
+            throw new AssertionError("Not a JSON line: " + line, e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.dg.prediction.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.core.io.ByteArrayResource;
+
+class ChatServiceTests {
+
+    private final StubChatModel model = new StubChatModel();
+    private final PredictionCache cache = new PredictionCache(10_000);
+    private final ChatService chatService = new ChatService(ChatClient.builder(model),
+        new ByteArrayResource("Continue the text.".getBytes()), cache);
+
+    @Test
+    void typingAlongPredictionDoesNotCallModel() {
+        assertThat(chatService.generatePrediction("I would like")).isEqualTo(" to buy a new car");
+        assertThat(chatService.generatePrediction("I would like to b")).isEqualTo("uy a new car");
+        assertThat(chatService.streamPrediction("I would like to buy a ").collectList().block())
+            .containsExactly("new car");
+
+        assertThat(model.calls).hasValue(1);
+        assertThat(model.streams).hasValue(0);
+    }
+
+    @Test
+    void cachesCompletedStreams() {
+        assertThat(String.join("", chatService.streamPrediction("I want").collectList().block()))
+            .isEqualTo(" to buy a new car");
+        assertThat(chatService.generatePrediction("I want to")).isEqualTo(" buy a new car");
+
+        assertThat(model.streams).hasValue(1);
+        assertThat(model.calls).hasValue(0);
+    }
+
+    @Test
+    void doesNotCacheCancelledStreams() {
+        model.delay(Duration.ofMillis(50));
+
+        assertThat(chatService.streamPrediction("I want").take(2).collectList().block())
+            .containsExactly(" to", " buy");
+        chatService.generatePrediction("I want to");
+
+        assertThat(model.cancellations).hasValue(1);
+        assertThat(model.calls).hasValue(1);
+    }
+}
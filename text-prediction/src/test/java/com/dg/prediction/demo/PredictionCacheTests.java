@@ -0,0 +1,127 @@
+package com.dg.prediction.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class PredictionCacheTests {
+
+    private final PredictionCache cache = new PredictionCache(1 << 20);
+
+    @Test
+    void servesExactInput() {
+        cache.put("I would like", " to buy a car");
+
+        assertThat(cache.lookup("I would like")).hasValue(" to buy a car");
+    }
+
+    @Test
+    void servesRestOfPredictionWhileTypingAlongIt() {
+        cache.put("I would like", " to buy a car");
+
+        assertThat(cache.lookup("I would like t")).hasValue("o buy a car");
+        assertThat(cache.lookup("I would like to buy ")).hasValue("a car");
+        assertThat(cache.lookup("I would like to buy a car")).isEmpty();
+    }
+
+    @Test
+    void missesWhenTypingLeavesPrediction() {
+        cache.put("I would like", " to buy a car");
+
+        assertThat(cache.lookup("I would like a")).isEmpty();
+        assertThat(cache.lookup("I would")).isEmpty();
+    }
+
+    @Test
+    void ignoresCaseAndExtraWhitespace() {
+        cache.put("I would like", " to buy a Car");
+
+        assertThat(cache.lookup("  i WOULD\n like  to buy a c")).hasValue("ar");
+    }
+
+    @Test
+    void servesPredictionExactlyAsTheModelWroteIt() {
+        cache.put("Hi", ",\n\nDear  team");
+
+        assertThat(cache.lookup("Hi")).hasValue(",\n\nDear  team");
+        assertThat(cache.lookup("Hi,\n\nDe")).hasValue("ar  team");
+        assertThat(cache.lookup("hi, dear")).hasValue("  team");
+    }
+
+    @Test
+    void countsTrieNodesAgainstTheBudget() {
+        var small = new PredictionCache(1_000);
+        small.put("a long input that needs many trie nodes", " and a prediction");
+
+        assertThat(small.stats().entries()).isZero();
+        assertThat(small.lookup("a long input that needs many trie nodes")).isEmpty();
+    }
+
+    @Test
+    void prefersLongestMatchingInput() {
+        cache.put("I would", " like to");
+        cache.put("I would like to", " buy a car");
+
+        assertThat(cache.lookup("I would like to b")).hasValue("uy a car");
+        assertThat(cache.lookup("I would lik")).hasValue("e to");
+    }
+
+    @Test
+    void fallsBackToShorterInputWhenLongerDiverges() {
+        cache.put("I would", " like to buy a car");
+        cache.put("I would like", " some tea");
+
+        assertThat(cache.lookup("I would like to")).hasValue(" buy a car");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondCharBudget() {
+        var small = new PredictionCache(2_500);
+        small.put("first input", " and its prediction");
+        small.put("second input", " and its prediction");
+        small.lookup("first input");
+        small.put("third input", " and its prediction");
+
+        assertThat(small.lookup("first input")).isPresent();
+        assertThat(small.lookup("second input")).isEmpty();
+        assertThat(small.lookup("third input")).isPresent();
+        assertThat(small.stats().evictions()).isEqualTo(1);
+        assertThat(small.stats().bytes()).isLessThanOrEqualTo(2_500);
+    }
+
+    @Test
+    void evictedInputLeavesItsPrefixServing() {
+        var small = new PredictionCache(1_000);
+        small.put("abcdef", " two");
+        small.put("abc", " one");
+        small.lookup("abc");
+        small.put("x", " padding that pushes the budget over sixty");
+
+        assertThat(small.lookup("abcdef")).isEmpty();
+        assertThat(small.lookup("abc o")).hasValue("ne");
+        assertThat(small.stats().entries()).isEqualTo(2);
+        assertThat(small.stats().nodes()).isEqualTo(4);
+    }
+
+    @Test
+    void countsHitsAndMisses() {
+        cache.put("I would like", " to buy a car");
+
+        cache.lookup("I would like");
+        cache.lookup("I would like to");
+        cache.lookup("I would like to");
+        cache.lookup("Something else");
+
+        var stats = cache.stats();
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.prefixHits()).isEqualTo(2);
+        assertThat(stats.misses()).isEqualTo(1);
+        assertThat(stats.hitRate()).isEqualTo(0.75);
+    }
+
+    @Test
+    void normalizesWhitespace() {
+        assertThat(PredictionCache.normalize("  I  would\tlike \n")).isEqualTo("I would like ");
+        assertThat(PredictionCache.normalize(" \n ")).isEmpty();
+    }
+}
@@ -0,0 +1,60 @@
+package com.dg.prediction.demo;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * A {@link ChatModel} that answers every prompt with the same tokens, streamed one per
+ * {@code delay}, and counts calls, streams and cancelled streams.
+ */
+class StubChatModel implements ChatModel {
+
+    final AtomicInteger calls = new AtomicInteger();
+    final AtomicInteger streams = new AtomicInteger();
+    final AtomicInteger cancellations = new AtomicInteger();
+
+    private volatile List<String> tokens = List.of(" to", " buy", " a", " new", " car");
+    private volatile Duration delay = Duration.ofMillis(20);
+
+    void tokens(String... tokens) {
+        this.tokens = List.of(tokens);
+    }
+
+    void delay(Duration delay) {
+        this.delay = delay;
+    }
+
+    void reset() {
+        calls.set(0);
+        streams.set(0);
+        cancellations.set(0);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        calls.incrementAndGet();
+        return response(String.join("", tokens));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        streams.incrementAndGet();
+        return Flux.fromIterable(tokens)
+            .delayElements(delay)
+            .map(StubChatModel::response)
+            .doOnCancel(cancellations::incrementAndGet);
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+}